@@ -3,9 +3,11 @@
 package org.terasology.module.behaviors.actions;
 
 import org.joml.Vector3f;
+import org.joml.Vector3i;
 import org.joml.Vector3ic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.engine.logic.behavior.BehaviorAction;
 import org.terasology.engine.logic.behavior.core.Actor;
 import org.terasology.engine.logic.behavior.core.BaseAction;
@@ -15,48 +17,76 @@ import org.terasology.engine.registry.CoreRegistry;
 import org.terasology.engine.registry.In;
 import org.terasology.engine.world.block.Blocks;
 import org.terasology.flexiblepathfinding.JPSConfig;
-import org.terasology.flexiblepathfinding.PathfinderSystem;
+import org.terasology.flexiblepathfinding.PathfinderCallback;
+import org.terasology.flexiblepathfinding.plugins.JPSPlugin;
 import org.terasology.module.behaviors.components.MinionMoveComponent;
+import org.terasology.module.behaviors.plugin.MovementPlugin;
+import org.terasology.module.behaviors.systems.FlowFieldSystem;
+import org.terasology.module.behaviors.systems.PathCacheSystem;
+import org.terasology.module.behaviors.systems.PathSchedulerSystem;
 import org.terasology.module.behaviors.systems.PluginSystem;
 
+import java.util.List;
+
 /**
  * Finds a path to the pathGoalPosition of the Actor, stores it in {@link MinionMoveComponent#getPath()}.
  * <p/>
  * SUCCESS: When the pathfinder returns a valid path
  * <p/>
  * FAILURE: When the pathfinder returns a failure or invalid path
- *
+ * <p/>
+ * Requests go through the {@link PathCacheSystem}, so the path may be served from the cache without running a search. If the path
+ * goal is an entity followed by several actors, the path is read from the shared {@link FlowFieldSystem} instead. Searches are
+ * scheduled by the {@link PathSchedulerSystem}, preferring actors pursuing an entity over idle ones.
+ * <p>
+ * Every search is tagged with a per-actor generation. If the node is aborted or started again before the search finishes, the
+ * outstanding search is cancelled and its result, should it arrive anyway, is discarded instead of overwriting a newer path.
  */
 @BehaviorAction(name = "find_path")
 public class FindPathToNode extends BaseAction {
 
     private static final Logger logger = LoggerFactory.getLogger(FindPathToNode.class);
 
+    /**
+     * The maximum time (in seconds) the pathfinder may spend on the search.
+     */
+    private float maxTime = 10f;
+
+    /**
+     * The maximum search depth of the pathfinder.
+     */
+    private int maxDepth = 150;
+
     @In
-    transient PathfinderSystem pathfinderSystem;
+    transient PathCacheSystem pathCacheSystem;
 
     @In
     transient PluginSystem pluginSystem;
 
-    // TODO: how do we want to remember state in actions?
-    // 1. action field as used here
-    // 2. actor.setValue, actor.getValue as used in SleepAction
-    // 3. write to, read from component
-    // 4. ...
-    private boolean isPathfindingRunning = false;
+    @In
+    transient FlowFieldSystem flowFieldSystem;
 
     @Override
     public void construct(Actor actor) {
         // TODO: Temporary fix for injection malfunction, remove once https://github.com/MovingBlocks/Terasology/issues/5004 is fixed.
-        if (pathfinderSystem == null) {
-            pathfinderSystem = CoreRegistry.get(PathfinderSystem.class);
+        if (pathCacheSystem == null) {
+            pathCacheSystem = CoreRegistry.get(PathCacheSystem.class);
         }
         if (pluginSystem == null) {
             pluginSystem = CoreRegistry.get(PluginSystem.class);
         }
+        if (flowFieldSystem == null) {
+            flowFieldSystem = CoreRegistry.get(FlowFieldSystem.class);
+        }
 
         logger.debug("Actor {}: construct find_path Action", actor.getEntity().getId());
 
+        // a search left over from a previous, aborted run of this node is of no interest anymore
+        Search previous = actor.getValue(getId());
+        cancel(previous);
+        int generation = previous != null ? previous.generation + 1 : 0;
+        actor.setValue(getId(), new Search(generation, null, null));
+
         MinionMoveComponent minionMoveComponent = actor.getComponent(MinionMoveComponent.class);
         Vector3ic start = Blocks.toBlockPos(actor.getComponent(LocationComponent.class).getWorldPosition(new Vector3f()));
         Vector3ic goal = minionMoveComponent.getPathGoal();
@@ -69,32 +99,58 @@ public class FindPathToNode extends BaseAction {
             return;
         }
 
+        MovementPlugin movementPlugin = pluginSystem.getMovementPlugin(actor.getEntity());
+        JPSPlugin plugin = movementPlugin.getJpsPlugin(actor.getEntity());
+
+        EntityRef goalEntity = minionMoveComponent.getPathGoalEntity();
+        if (goalEntity != null && goalEntity.exists()) {
+            List<Vector3i> sharedPath = flowFieldSystem.getPath(actor.getEntity(), goalEntity, movementPlugin, start,
+                    minionMoveComponent.goalTolerance);
+            if (sharedPath != null && !sharedPath.isEmpty()) {
+                logger.debug("... [{}]: path between {} -> {} taken from flow field", actor.getEntity().getId(), start, goal);
+                minionMoveComponent.setPath(sharedPath);
+                actor.save(minionMoveComponent);
+                return;
+            }
+        }
+
         JPSConfig config = new JPSConfig(start, goal);
         config.useLineOfSight = false;
         config.requester = actor.getEntity();
-        config.maxTime = 10f;
-        config.maxDepth = 150;
+        config.maxTime = maxTime;
+        config.maxDepth = maxDepth;
         config.goalDistance = minionMoveComponent.goalTolerance;
-        config.plugin = pluginSystem.getMovementPlugin(actor.getEntity()).getJpsPlugin(actor.getEntity());
-
-        isPathfindingRunning = true;
+        config.plugin = plugin;
 
         logger.debug("... [{}]: compute path between {} -> {}", actor.getEntity().getId(), start, goal);
-        int id = pathfinderSystem.requestPath(config, (path, target) -> {
-            isPathfindingRunning = false;
-            if (path == null || path.size() == 0) {
-                return;
-            }
-            path.remove(0);
-
-            MinionMoveComponent minionMoveComponent1 = actor.getComponent(MinionMoveComponent.class);
-            minionMoveComponent1.setPath(path);
-            actor.save(minionMoveComponent1);
-        });
+        // pursuing an entity is more urgent than idle movement to a fixed position
+        PathSchedulerSystem.Priority priority = goalEntity != null
+                ? PathSchedulerSystem.Priority.PURSUIT
+                : PathSchedulerSystem.Priority.IDLE;
+        Search search = new Search(generation, config, (path, target) -> onPathReady(actor, generation, path));
+        actor.setValue(getId(), search);
+        int id = pathCacheSystem.requestPath(config, priority, search.callback);
         if (id == -1) {
             // task was not accepted
-            isPathfindingRunning = false;
+            search.running = false;
+        }
+    }
+
+    private void onPathReady(Actor actor, int generation, List<Vector3i> path) {
+        Search search = actor.getValue(getId());
+        if (search == null || search.generation != generation || !search.running) {
+            logger.debug("... [{}]: discarding stale path of search generation {}", actor.getEntity().getId(), generation);
+            return;
         }
+        search.running = false;
+        if (path == null || path.size() == 0) {
+            return;
+        }
+        path.remove(0);
+
+        MinionMoveComponent minionMoveComponent = actor.getComponent(MinionMoveComponent.class);
+        minionMoveComponent.setPath(path);
+        actor.save(minionMoveComponent);
     }
 
     @Override
@@ -105,7 +161,8 @@ public class FindPathToNode extends BaseAction {
             // this can never happen o.O
             return result;
         }
-        if (isPathfindingRunning) {
+        Search search = actor.getValue(getId());
+        if (search != null && search.running) {
             logger.debug("... [{}]: ... still searching for path", actor.getEntity().getId());
             return BehaviorState.RUNNING;
         }
@@ -114,4 +171,36 @@ public class FindPathToNode extends BaseAction {
         logger.debug("... [{}]: pathfinding done: {}", actor.getEntity().getId(), minionMoveComponent.getPath());
         return minionMoveComponent.getPath().isEmpty() ? BehaviorState.FAILURE : BehaviorState.SUCCESS;
     }
+
+    @Override
+    public void destruct(Actor actor) {
+        cancel(actor.getValue(getId()));
+    }
+
+    private void cancel(Search search) {
+        if (search == null || !search.running) {
+            return;
+        }
+        search.running = false;
+        if (search.config != null) {
+            pathCacheSystem.cancel(search.config, search.callback);
+        }
+    }
+
+    /**
+     * The state of the latest path search of a single actor.
+     */
+    private static final class Search {
+        private final int generation;
+        private final JPSConfig config;
+        private final PathfinderCallback callback;
+        private boolean running;
+
+        Search(int generation, JPSConfig config, PathfinderCallback callback) {
+            this.generation = generation;
+            this.config = config;
+            this.callback = callback;
+            this.running = config != null;
+        }
+    }
 }
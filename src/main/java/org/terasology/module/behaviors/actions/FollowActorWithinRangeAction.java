@@ -0,0 +1,90 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.actions;
+
+import org.joml.Vector3f;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.logic.behavior.BehaviorAction;
+import org.terasology.engine.logic.behavior.core.Actor;
+import org.terasology.engine.logic.behavior.core.BaseAction;
+import org.terasology.engine.logic.behavior.core.BehaviorState;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.registry.CoreRegistry;
+import org.terasology.engine.registry.In;
+import org.terasology.module.behaviors.components.FollowComponent;
+import org.terasology.module.behaviors.systems.ActorSpatialIndexSystem;
+import org.terasology.nui.properties.Range;
+
+import java.util.Objects;
+
+/**
+ * Follow the closest other actor of the same kind, e.g., to keep a herd together.
+ * <p>
+ * Actors are of the same kind if they were created from the same prefab. Only actors with a lower entity id are followed, so that the
+ * actors of a group form chains towards the one with the lowest id, which leads the group, instead of following each other in circles.
+ * Fails if there is no such actor within {@code maxDistance}, e.g., for the leader.
+ */
+@BehaviorAction(name = "follow_actor_within_range")
+public class FollowActorWithinRangeAction extends BaseAction {
+
+    @Range(min = 2, max = 50)
+    private float maxDistance = 15.0f;
+
+    @In
+    private ActorSpatialIndexSystem actorSpatialIndexSystem;
+
+    // reused for all actors, as behavior trees are only run on the game thread
+    private final transient Vector3f position = new Vector3f();
+    private final transient Vector3f neighbourPosition = new Vector3f();
+
+    @Override
+    public void construct(Actor actor) {
+        // TODO: Temporary fix for injection malfunction, remove once https://github.com/MovingBlocks/Terasology/issues/5004 is fixed.
+        if (actorSpatialIndexSystem == null) {
+            actorSpatialIndexSystem = CoreRegistry.get(ActorSpatialIndexSystem.class);
+        }
+    }
+
+    @Override
+    public BehaviorState modify(Actor actor, BehaviorState result) {
+        FollowComponent followWish = actor.getComponent(FollowComponent.class);
+        if (followWish == null) {
+            return BehaviorState.FAILURE;
+        }
+
+        LocationComponent location = actor.getComponent(LocationComponent.class);
+        if (location == null) {
+            return BehaviorState.FAILURE;
+        }
+        location.getWorldPosition(position);
+
+        EntityRef self = actor.getEntity();
+        Prefab kind = self.getParentPrefab();
+        EntityRef closest = null;
+        float closestDistanceSquared = Float.POSITIVE_INFINITY;
+        for (EntityRef neighbour : actorSpatialIndexSystem.findNeighbours(self, maxDistance, null)) {
+            if (neighbour.getId() >= self.getId() || !Objects.equals(neighbour.getParentPrefab(), kind)) {
+                continue;
+            }
+            LocationComponent neighbourLocation = neighbour.getComponent(LocationComponent.class);
+            if (neighbourLocation == null) {
+                continue;
+            }
+            float distanceSquared = neighbourLocation.getWorldPosition(neighbourPosition).distanceSquared(position);
+            if (distanceSquared < closestDistanceSquared) {
+                closest = neighbour;
+                closestDistanceSquared = distanceSquared;
+            }
+        }
+        if (closest == null) {
+            return BehaviorState.FAILURE;
+        }
+        // most of the time the actor keeps following the same one, which does not need to notify anyone
+        if (!closest.equals(followWish.entityToFollow)) {
+            followWish.entityToFollow = closest;
+            actor.save(followWish);
+        }
+        return BehaviorState.SUCCESS;
+    }
+}
@@ -2,25 +2,18 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.terasology.module.behaviors.actions;
 
-import com.google.common.collect.Lists;
 import org.joml.Vector3f;
 import org.terasology.engine.registry.CoreRegistry;
 import org.terasology.module.behaviors.components.FollowComponent;
-import org.terasology.engine.entitySystem.entity.EntityManager;
-import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.engine.logic.behavior.BehaviorAction;
 import org.terasology.engine.logic.behavior.core.Actor;
 import org.terasology.engine.logic.behavior.core.BaseAction;
 import org.terasology.engine.logic.behavior.core.BehaviorState;
-import org.terasology.engine.logic.characters.AliveCharacterComponent;
 import org.terasology.engine.logic.location.LocationComponent;
-import org.terasology.engine.network.ClientComponent;
 import org.terasology.engine.registry.In;
-import org.terasology.module.behaviors.systems.PluginSystem;
+import org.terasology.module.behaviors.systems.PlayerSnapshotSystem;
 import org.terasology.nui.properties.Range;
 
-import java.util.List;
-
 @BehaviorAction(name = "follow_player_within_range")
 public class FollowPlayerWithinRangeAction extends BaseAction {
 
@@ -28,13 +21,13 @@ public class FollowPlayerWithinRangeAction extends BaseAction {
     private float maxDistance = 15.0f;
 
     @In
-    private EntityManager entityManager;
+    private PlayerSnapshotSystem playerSnapshotSystem;
 
     @Override
     public void construct(Actor actor) {
         // TODO: Temporary fix for injection malfunction, remove once https://github.com/MovingBlocks/Terasology/issues/5004 is fixed.
-        if (entityManager == null) {
-            entityManager = CoreRegistry.get(EntityManager.class);
+        if (playerSnapshotSystem == null) {
+            playerSnapshotSystem = CoreRegistry.get(PlayerSnapshotSystem.class);
         }
     }
 
@@ -46,42 +39,8 @@ public class FollowPlayerWithinRangeAction extends BaseAction {
         }
         Vector3f actorPosition = actorLocationComponent.getWorldPosition(new Vector3f());
 
-        float maxDistanceSquared = (float) Math.pow(maxDistance, 2);
-        Iterable<EntityRef> clients = entityManager.getEntitiesWith(ClientComponent.class);
-        List<EntityRef> charactersWithinRange = Lists.newArrayList();
-
-        EntityRef closestCharacter = EntityRef.NULL;
-        float minDistanceFromCharacter = 0.0f;
-
-        Vector3f locationPosition = new Vector3f();
-        for (EntityRef client : clients) {
-            ClientComponent clientComponent = client.getComponent(ClientComponent.class);
-            EntityRef character = clientComponent.character;
-            AliveCharacterComponent aliveCharacterComponent = character.getComponent(AliveCharacterComponent.class);
-            if (aliveCharacterComponent == null) {
-                continue;
-            }
-            LocationComponent locationComponent = character.getComponent(LocationComponent.class);
-            if (locationComponent == null) {
-                continue;
-            }
-            locationComponent.getWorldPosition(locationPosition);
-            if (locationPosition.distanceSquared(actorPosition) <= maxDistanceSquared) {
-                if (charactersWithinRange.size() == 0) {
-                    closestCharacter = character;
-                    minDistanceFromCharacter = locationPosition.distanceSquared(actorPosition);
-                } else {
-                    if (locationPosition.distanceSquared(actorPosition) < minDistanceFromCharacter) {
-                        closestCharacter = character;
-                        minDistanceFromCharacter = locationPosition.distanceSquared(actorPosition);
-                    }
-                }
-
-                charactersWithinRange.add(character);
-            }
-        }
-
-        if (charactersWithinRange.isEmpty()) {
+        int closest = playerSnapshotSystem.findClosestAlive(actorPosition, maxDistance);
+        if (closest < 0) {
             return BehaviorState.FAILURE;
         }
 
@@ -90,7 +49,7 @@ public class FollowPlayerWithinRangeAction extends BaseAction {
             return BehaviorState.FAILURE;
         }
 
-        followWish.entityToFollow = closestCharacter;
+        followWish.entityToFollow = playerSnapshotSystem.getCharacter(closest);
         actor.save(followWish);
         return BehaviorState.SUCCESS;
     }
@@ -2,14 +2,14 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.terasology.module.behaviors.actions;
 
-import org.joml.Vector3f;
 import org.terasology.engine.logic.behavior.BehaviorAction;
 import org.terasology.engine.logic.behavior.core.Actor;
 import org.terasology.engine.logic.behavior.core.BaseAction;
 import org.terasology.engine.logic.behavior.core.BehaviorState;
-import org.terasology.engine.logic.characters.CharacterMoveInputEvent;
 import org.terasology.engine.logic.characters.CharacterMovementComponent;
-import org.terasology.gestalt.entitysystem.event.Event;
+import org.terasology.engine.registry.CoreRegistry;
+import org.terasology.engine.registry.In;
+import org.terasology.module.behaviors.systems.MinionMoveSystem;
 
 /**
  * Trigger a single jump into the air.<br/>
@@ -21,16 +21,28 @@ import org.terasology.gestalt.entitysystem.event.Event;
 @BehaviorAction(name = "jump")
 public class JumpNode extends BaseAction {
 
+    @In
+    private MinionMoveSystem minionMoveSystem;
+
     @Override
     public void construct(Actor actor) {
-        long delta = (long) (actor.getDelta() * 1000);
-        Event event = new CharacterMoveInputEvent(0, 0, 0, new Vector3f(), false, false, true, delta);
-        actor.getEntity().send(event);
+        // TODO: Temporary fix for injection malfunction, remove once https://github.com/MovingBlocks/Terasology/issues/5004 is fixed.
+        if (minionMoveSystem == null) {
+            minionMoveSystem = CoreRegistry.get(MinionMoveSystem.class);
+        }
 
+        minionMoveSystem.getSteering(actor.getEntity()).jump();
+        // the jump input is dispatched at the end of the tick, the actor is still on the ground until then
+        actor.setValue(getId(), true);
     }
 
     @Override
     public BehaviorState modify(Actor actor, BehaviorState result) {
+        Boolean dispatching = actor.getValue(getId());
+        if (dispatching != null && dispatching) {
+            actor.setValue(getId(), false);
+            return BehaviorState.RUNNING;
+        }
         return actor.getComponent(CharacterMovementComponent.class).grounded ? BehaviorState.SUCCESS : BehaviorState.RUNNING;
     }
 }
@@ -0,0 +1,158 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.actions;
+
+import org.joml.Vector3f;
+import org.terasology.engine.logic.behavior.BehaviorAction;
+import org.terasology.engine.logic.behavior.core.Actor;
+import org.terasology.engine.logic.behavior.core.BaseAction;
+import org.terasology.engine.logic.behavior.core.BehaviorState;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.registry.CoreRegistry;
+import org.terasology.engine.registry.In;
+import org.terasology.module.behaviors.systems.PlayerSnapshotSystem;
+
+/**
+ * Runs its child less often the farther the actor is away from the nearest player.
+ * <p>
+ * Within {@code nearDistance} of a player the child runs on every tick, within {@code midDistance} on every 4th tick, and within
+ * {@code farDistance} on every 16th tick. Beyond that, the child is frozen until a player comes closer. If no player is alive at all,
+ * every actor is out of reach of the players, so the child is frozen as well, e.g., on a server nobody is connected to. Actors without a
+ * location cannot be ranked and run on every tick.
+ * <p>
+ * When the child runs after skipped ticks, it sees the game time passed since its last run as delta, so that sleeps and timeouts take
+ * as long as without this decorator. Frozen time does not count.
+ * <p>
+ * Usually wraps the whole tree of a creature.
+ * <p>
+ * RUNNING: while the child is running or skipped
+ * <p>
+ * SUCCESS / FAILURE: when the child returns SUCCESS / FAILURE
+ */
+@BehaviorAction(name = "lod", isDecorator = true)
+public class LevelOfDetailNode extends BaseAction {
+
+    private static final int MID_INTERVAL = 4;
+    private static final int FAR_INTERVAL = 16;
+    /** The number of ticks after which a frozen actor checks again whether a player came closer. */
+    private static final int FROZEN_INTERVAL = 16;
+
+    /**
+     * The distance (in blocks) to the nearest player within which the child runs on every tick.
+     */
+    private float nearDistance = 32f;
+
+    /**
+     * The distance (in blocks) to the nearest player within which the child runs on every 4th tick.
+     */
+    private float midDistance = 64f;
+
+    /**
+     * The distance (in blocks) to the nearest player within which the child runs on every 16th tick.
+     */
+    private float farDistance = 128f;
+
+    @In
+    private PlayerSnapshotSystem playerSnapshotSystem;
+
+    // reused for all actors, as behavior trees are only run on the game thread
+    private final transient Vector3f position = new Vector3f();
+
+    @Override
+    public void construct(Actor actor) {
+        // TODO: Temporary fix for injection malfunction, remove once https://github.com/MovingBlocks/Terasology/issues/5004 is fixed.
+        if (playerSnapshotSystem == null) {
+            playerSnapshotSystem = CoreRegistry.get(PlayerSnapshotSystem.class);
+        }
+        // the schedule is kept when the tree restarts, otherwise a tree finishing quickly would run on every tick
+        if (actor.getValue(getId()) == null) {
+            actor.setValue(getId(), new Schedule());
+        }
+    }
+
+    @Override
+    public boolean prune(Actor actor) {
+        Schedule schedule = actor.getValue(getId());
+        if (schedule == null) {
+            return false;
+        }
+        schedule.pruned = true;
+        if (schedule.countdown > 0) {
+            schedule.countdown--;
+            if (!schedule.frozen) {
+                schedule.skippedDelta += actor.getDelta();
+            }
+            return true;
+        }
+
+        int interval = interval(actor);
+        if (interval == 0) {
+            schedule.frozen = true;
+            schedule.countdown = FROZEN_INTERVAL - 1;
+            schedule.skippedDelta = 0;
+            return true;
+        }
+        schedule.frozen = false;
+        schedule.countdown = interval - 1;
+        schedule.pruned = false;
+
+        // let the child see the time passed since its last run
+        schedule.tickDelta = actor.getDelta();
+        actor.setDelta(schedule.tickDelta + schedule.skippedDelta);
+        schedule.skippedDelta = 0;
+        return false;
+    }
+
+    @Override
+    public BehaviorState modify(Actor actor, BehaviorState result) {
+        Schedule schedule = actor.getValue(getId());
+        if (schedule == null) {
+            return result;
+        }
+        if (schedule.pruned) {
+            return BehaviorState.RUNNING;
+        }
+        actor.setDelta(schedule.tickDelta);
+        return result;
+    }
+
+    /**
+     * The number of ticks between two runs of the child, or 0 if the child should not run at all.
+     */
+    private int interval(Actor actor) {
+        LocationComponent location = actor.getComponent(LocationComponent.class);
+        if (location == null) {
+            return 1;
+        }
+        if (playerSnapshotSystem.getAliveCount() == 0) {
+            return 0;
+        }
+        float minDistanceSquared = playerSnapshotSystem.nearestAliveDistanceSquared(location.getWorldPosition(position));
+
+        if (minDistanceSquared <= nearDistance * nearDistance) {
+            return 1;
+        }
+        if (minDistanceSquared <= midDistance * midDistance) {
+            return MID_INTERVAL;
+        }
+        if (minDistanceSquared <= farDistance * farDistance) {
+            return FAR_INTERVAL;
+        }
+        return 0;
+    }
+
+    /**
+     * When to run the child of a single actor next.
+     */
+    private static final class Schedule {
+        /** The number of ticks to skip before the child runs again. */
+        private int countdown;
+        /** The game time (in seconds) passed in skipped ticks. */
+        private float skippedDelta;
+        /** The actual delta of the current tick, restored after the child ran. */
+        private float tickDelta;
+        private boolean frozen;
+        /** Whether the child was skipped in the current tick. */
+        private boolean pruned;
+    }
+}
@@ -10,9 +10,11 @@ import org.terasology.engine.logic.behavior.BehaviorAction;
 import org.terasology.engine.logic.behavior.core.Actor;
 import org.terasology.engine.logic.behavior.core.BaseAction;
 import org.terasology.engine.logic.behavior.core.BehaviorState;
-import org.terasology.engine.logic.characters.CharacterMoveInputEvent;
 import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.registry.CoreRegistry;
+import org.terasology.engine.registry.In;
 import org.terasology.module.behaviors.components.TargetComponent;
+import org.terasology.module.behaviors.systems.MinionMoveSystem;
 import org.terasology.nui.properties.Range;
 
 /**
@@ -34,6 +36,17 @@ public class LookAtAction extends BaseAction {
     @Range(min = 0, max = 10)
     private float maxAngleDegrees = 2f;
 
+    @In
+    private MinionMoveSystem minionMoveSystem;
+
+    @Override
+    public void construct(Actor actor) {
+        // TODO: Temporary fix for injection malfunction, remove once https://github.com/MovingBlocks/Terasology/issues/5004 is fixed.
+        if (minionMoveSystem == null) {
+            minionMoveSystem = CoreRegistry.get(MinionMoveSystem.class);
+        }
+    }
+
     @Override
     public BehaviorState modify(Actor actor, BehaviorState result) {
         TargetComponent targetComponent = actor.getComponent(TargetComponent.class);
@@ -51,7 +64,6 @@ public class LookAtAction extends BaseAction {
         Vector3f locationPosition = locationComponent.getWorldPosition(new Vector3f());
         Vector3f targetPosition = targetLocation.getWorldPosition(new Vector3f());
         Vector3f targetDirection = targetPosition.sub(locationPosition, new Vector3f());
-        Vector3f drive = new Vector3f(); // Leave blank for no movement
 
         float yaw = Math.atan2(targetDirection.x, targetDirection.z);
         float requestedYaw = (float) (180f + Math.toDegrees(yaw));
@@ -69,16 +81,8 @@ public class LookAtAction extends BaseAction {
 
         targetDirection.normalize();
 
-        CharacterMoveInputEvent wantedInput = new CharacterMoveInputEvent(
-            0,
-            0,
-            requestedYaw,
-            drive,
-            false,
-            false,
-            false,
-            (long) (actor.getDelta() * 1000));
-        actor.getEntity().send(wantedInput);
+        // turning is merged with the movement of the actor in the same tick, if any
+        minionMoveSystem.getSteering(actor.getEntity()).lookAt(requestedYaw, 0);
 
         // TODO: Some kind of ray cast to see if there are any obstacles
         return BehaviorState.SUCCESS;
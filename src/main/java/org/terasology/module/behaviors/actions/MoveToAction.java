@@ -3,24 +3,27 @@
 package org.terasology.module.behaviors.actions;
 
 import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.joml.Vector3i;
+import org.joml.Vector3ic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.engine.logic.behavior.BehaviorAction;
 import org.terasology.engine.logic.behavior.core.Actor;
 import org.terasology.engine.logic.behavior.core.BaseAction;
 import org.terasology.engine.logic.behavior.core.BehaviorState;
-import org.terasology.engine.logic.characters.CharacterMoveInputEvent;
 import org.terasology.engine.logic.location.LocationComponent;
 import org.terasology.engine.registry.CoreRegistry;
 import org.terasology.engine.registry.In;
-import org.terasology.engine.world.WorldProvider;
-import org.terasology.engine.world.block.BlockRegion;
-import org.terasology.joml.geom.AABBf;
+import org.terasology.engine.world.block.Blocks;
 import org.terasology.module.behaviors.components.MinionMoveComponent;
+import org.terasology.module.behaviors.plugin.CompositeMovementPlugin;
 import org.terasology.module.behaviors.plugin.MovementPlugin;
-import org.terasology.module.behaviors.plugin.WalkingMovementPlugin;
+import org.terasology.module.behaviors.systems.MinionMoveSystem;
 import org.terasology.module.behaviors.systems.PluginSystem;
+import org.terasology.module.behaviors.systems.Steering;
 
 /**
  * Uses an actor's MovementPlugin to move it to {@link MinionMoveComponent#target}
@@ -28,17 +31,38 @@ import org.terasology.module.behaviors.systems.PluginSystem;
  * SUCCESS: When the actor reaches {@link MinionMoveComponent#target}
  * <p>
  * FAILURE: When the actor believes it is unable to reach its immediate target
+ * <p>
+ * The actor is considered unable to reach its target if it did not get closer by at least {@code minProgress} blocks within the last
+ * {@code stallTime} seconds, or within the last {@code collisionStallTime} seconds while constantly colliding horizontally (e.g.,
+ * pushing against a wall). Both times are measured in game time, independent of the frame rate.
  */
 @BehaviorAction(name = "move_to")
 public class MoveToAction extends BaseAction {
     private static final Logger logger = LoggerFactory.getLogger(MoveToAction.class);
 
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * The time (in seconds) after which the actor is considered stuck if it made no progress towards the target.
+     */
+    private float stallTime = 2f;
+
+    /**
+     * The time (in seconds) after which the actor is considered stuck if it made no progress and collided horizontally all the time.
+     */
+    private float collisionStallTime = 0.5f;
+
+    /**
+     * The distance (in blocks) the actor has to get closer to the target within the stall times to be considered making progress.
+     */
+    private float minProgress = 0.25f;
+
     @In
     private Time time;
     @In
-    private WorldProvider world;
-    @In
     private PluginSystem pluginSystem;
+    @In
+    private MinionMoveSystem minionMoveSystem;
 
     @Override
     public void construct(Actor actor) {
@@ -46,82 +70,192 @@ public class MoveToAction extends BaseAction {
         if (time == null) {
             time = CoreRegistry.get(Time.class);
         }
-        if (world == null) {
-            world = CoreRegistry.get(WorldProvider.class);
-        }
         if (pluginSystem == null) {
             pluginSystem = CoreRegistry.get(PluginSystem.class);
         }
+        if (minionMoveSystem == null) {
+            minionMoveSystem = CoreRegistry.get(MinionMoveSystem.class);
+        }
 
         MinionMoveComponent minionMoveComponent = actor.getComponent(MinionMoveComponent.class);
         minionMoveComponent.sequenceNumber = 0;
         actor.save(minionMoveComponent);
+
+        MoveState state = actor.getValue(getId());
+        if (state == null) {
+            state = new MoveState();
+            actor.setValue(getId(), state);
+        }
+        state.reset(time.getGameTimeInMs());
     }
 
     @Override
     public BehaviorState modify(Actor actor, BehaviorState prevResult) {
-        logger.debug("Actor {}: in move_to Action", actor.getEntity().getId());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Actor {}: in move_to Action", actor.getEntity().getId());
+        }
         LocationComponent location = actor.getComponent(LocationComponent.class);
         MinionMoveComponent minionMoveComponent = actor.getComponent(MinionMoveComponent.class);
 
+        // this node runs for every moving actor on every tick, so it works on scratch vectors instead of allocating new ones
+        Scratch scratch = SCRATCH.get();
+
         // we need to translate the movement target to an expected real world position
         // in practice we just need to adjust the Y so that it's resting on top of the block at the right height
-        Vector3f adjustedMoveTarget = new Vector3f(minionMoveComponent.target);
+        Vector3f adjustedMoveTarget = scratch.moveTarget.set(minionMoveComponent.target);
 
-        Vector3f position = location.getWorldPosition(new Vector3f());
+        Vector3f position = location.getWorldPosition(scratch.position);
 
-        // Make the target area a bit smaller than the actual block to ensure that the entity
-        // is well within the block boundaries before moving on.
-        float tolerance = minionMoveComponent.targetTolerance;
-        AABBf targetArea = new BlockRegion(minionMoveComponent.target)
-                .getBounds(new AABBf())
-                .expand(-tolerance, -tolerance, -tolerance);
-        if (targetArea.containsPoint(position)) {
+        if (isInTargetArea(minionMoveComponent.target, minionMoveComponent.targetTolerance, position)) {
             return BehaviorState.SUCCESS;
         }
-        // Could not reach target with _n_ movements - abort action;
-        //
-        // As we scale the movement with the tick rate (the game time delta) just counting the
-        // sequence number might be a bad measure for long-running/slow movements.
-        // With about 200fps this would allow for just 1 second of consecutive movement with an
-        // upper bound of 200 cycles. Therefore, increasing this number to have a bit more margin.
-        //
-        //TODO: find a better measure for "time outs" and identifying long-running actions
-        if (minionMoveComponent.sequenceNumber > 1000) {
+
+        Vector3ic target = minionMoveComponent.target;
+        float distance = position.distance(target.x(), target.y(), target.z());
+        if (isStalled(actor.getValue(getId()), distance, minionMoveComponent.collidedHorizontally)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("... [{}]: no progress towards target {}, giving up", actor.getEntity().getId(), target);
+            }
             minionMoveComponent.resetPath();
             actor.save(minionMoveComponent);
             return BehaviorState.FAILURE;
         }
 
         minionMoveComponent.sequenceNumber++;
-        MovementPlugin plugin = pluginSystem.getMovementPlugin(actor.getEntity());
-        CharacterMoveInputEvent result = plugin.move(
+        // the plugin writes the movement into the steering directly, so no input event is created per tick
+        Steering steering = minionMoveSystem.getSteering(actor.getEntity());
+        MovementPlugin plugin = choosePlugin(actor.getEntity(), actor.getValue(getId()), minionMoveComponent.target, position);
+        boolean moved = plugin != null && plugin.move(
                 actor.getEntity(),
                 adjustedMoveTarget,
-                minionMoveComponent.sequenceNumber
+                minionMoveComponent.sequenceNumber,
+                steering
         );
 
-        if (result == null) {
+        if (!moved) {
             // this is ugly, but due to unknown idiosyncrasies in the engine character movement code, characters
             // sometimes sink into solid blocks below them. This causes reachability checks to fail intermittently,
             // especially when characters stop moving. In an ideal world, we'd exit failure here to indicate our
             // path is no longer valid. However, we instead fall back to a default movement plugin in the hopes
             // that a gentle nudge in a probably-correct direction will at least make the physics reconcile the
             // intersection, and hopefully return to properly penetrable blocks.
-            logger.debug("... [{}]: Movement plugin returned null - falling back to WalkingMovementPlugin", actor.getEntity().getId());
-            MovementPlugin fallbackPlugin = new WalkingMovementPlugin(world, time);
-            result = fallbackPlugin.move(
+            if (logger.isDebugEnabled()) {
+                logger.debug("... [{}]: Movement plugin cannot move - falling back to walking", actor.getEntity().getId());
+            }
+            pluginSystem.getFallbackPlugin().move(
                     actor.getEntity(),
                     adjustedMoveTarget,
-                    minionMoveComponent.sequenceNumber
+                    minionMoveComponent.sequenceNumber,
+                    steering
             );
         }
 
-        actor.getEntity().send(result);
+        // if ticks were skipped (see LevelOfDetailNode), the input has to cover all the time since the last run
+        steering.delta = Math.max(steering.delta, (long) (actor.getDelta() * 1000));
+        // these fields are bookkeeping of the running movement that no other system reacts to, so the component is not saved on every
+        // tick to avoid change events for all listeners (like the collision flag set by MinionMoveSystem)
         minionMoveComponent.lastInput = time.getGameTimeInMs();
         minionMoveComponent.collidedHorizontally = false;
-        actor.save(minionMoveComponent);
 
         return BehaviorState.RUNNING;
     }
+
+    /**
+     * The movement plugin to move the actor from where its current segment started to the target.
+     * <p>
+     * For composed movement plugins, the sub-plugin able to reach the target is chosen once per segment and remembered in the actor's
+     * state. It is chosen again if the target or the actor's movement plugin changes, or a block close to the segment changed.
+     *
+     * @return the plugin to move with, or null if none of the actor's plugins can reach the target
+     */
+    private MovementPlugin choosePlugin(EntityRef entity, MoveState state, Vector3ic target, Vector3fc position) {
+        MovementPlugin movementPlugin = pluginSystem.getMovementPlugin(entity);
+        if (state == null || !(movementPlugin instanceof CompositeMovementPlugin)) {
+            return movementPlugin;
+        }
+        boolean sameSegment = state.segmentOwner == movementPlugin && state.segmentTo.equals(target);
+        if (sameSegment && state.segmentPlugin != null
+                && !pluginSystem.hasBlockChangedNear(state.segmentBlockChanges, state.segmentFrom, state.segmentTo)) {
+            return state.segmentPlugin;
+        }
+        // the (remaining) segment starts where the actor is now
+        state.segmentOwner = movementPlugin;
+        Blocks.toBlockPos(position, state.segmentFrom);
+        state.segmentTo.set(target);
+        state.segmentBlockChanges = pluginSystem.getBlockChangeCount();
+        state.segmentPlugin = ((CompositeMovementPlugin) movementPlugin).selectPlugin(entity, state.segmentFrom, state.segmentTo);
+        return state.segmentPlugin;
+    }
+
+    /**
+     * Update the progress of the actor and check whether it stopped getting closer to its target.
+     */
+    private boolean isStalled(MoveState state, float distance, boolean collided) {
+        if (state == null) {
+            return false;
+        }
+        long now = time.getGameTimeInMs();
+        if (Float.isNaN(state.windowDistance) || state.windowDistance - distance >= minProgress) {
+            // made progress, start a new window
+            state.windowStart = now;
+            state.windowDistance = distance;
+            state.collidingSince = -1;
+            return false;
+        }
+        if (!collided) {
+            state.collidingSince = -1;
+        } else if (state.collidingSince < 0) {
+            state.collidingSince = now;
+        }
+        boolean stalled = now - state.windowStart > stallTime * 1000;
+        boolean blocked = state.collidingSince >= 0 && now - state.collidingSince > collisionStallTime * 1000;
+        return stalled || blocked;
+    }
+
+    /**
+     * Whether the given position is within the block at {@code target}, shrunk by {@code tolerance} on every side to ensure that the
+     * entity is well within the block boundaries before moving on.
+     */
+    static boolean isInTargetArea(Vector3ic target, float tolerance, Vector3fc position) {
+        float extent = 0.5f - tolerance;
+        return Math.abs(position.x() - target.x()) <= extent
+                && Math.abs(position.y() - target.y()) <= extent
+                && Math.abs(position.z() - target.z()) <= extent;
+    }
+
+    /**
+     * The progress of a single actor towards its current target, and the movement plugin chosen to get there.
+     */
+    private static final class MoveState {
+        /** The game time at which the actor last made progress. */
+        private long windowStart;
+        /** The distance to the target when the actor last made progress. */
+        private float windowDistance;
+        /** The game time since which the actor collides horizontally without making progress, or -1. */
+        private long collidingSince;
+
+        /** The composed movement plugin {@link #segmentPlugin} was chosen from, null if none was chosen yet. */
+        private MovementPlugin segmentOwner;
+        private MovementPlugin segmentPlugin;
+        private final Vector3i segmentFrom = new Vector3i();
+        private final Vector3i segmentTo = new Vector3i();
+        /** The block change count when {@link #segmentPlugin} was chosen. */
+        private long segmentBlockChanges;
+
+        void reset(long now) {
+            windowStart = now;
+            windowDistance = Float.NaN;
+            collidingSince = -1;
+            segmentOwner = null;
+            segmentPlugin = null;
+        }
+    }
+
+    /**
+     * Vectors reused across ticks, never handed out beyond a single call of {@link #modify(Actor, BehaviorState)}.
+     */
+    private static final class Scratch {
+        private final Vector3f moveTarget = new Vector3f();
+        private final Vector3f position = new Vector3f();
+    }
 }
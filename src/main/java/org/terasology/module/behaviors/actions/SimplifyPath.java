@@ -0,0 +1,152 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.actions;
+
+import com.google.common.collect.Lists;
+import org.joml.Vector3i;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.logic.behavior.BehaviorAction;
+import org.terasology.engine.logic.behavior.core.Actor;
+import org.terasology.engine.logic.behavior.core.BaseAction;
+import org.terasology.engine.logic.behavior.core.BehaviorState;
+import org.terasology.engine.registry.CoreRegistry;
+import org.terasology.engine.registry.In;
+import org.terasology.flexiblepathfinding.plugins.JPSPlugin;
+import org.terasology.module.behaviors.components.MinionMoveComponent;
+import org.terasology.module.behaviors.plugin.PathSegments;
+import org.terasology.module.behaviors.systems.PluginSystem;
+
+import java.util.List;
+
+/**
+ * Reduces the number of waypoints of the remaining {@link MinionMoveComponent#getPath()}, usually right after {@code find_path}.
+ * <p>
+ * 1. Waypoints in the middle of a level straight line of waypoints are dropped.
+ * <p>
+ * 2. Waypoints on level ground are skipped as long as the actor can move in a straight line to a later waypoint, i.e., the pathfinding
+ * plugin considers every step along that line reachable ("string pulling"). Straight segments are at most {@code maxSegmentLength}
+ * blocks long.
+ * <p>
+ * Waypoints on slopes are never dropped, so climbing, leaping and falling keep working with single steps.
+ * <p>
+ * With fewer waypoints, {@code move_along_path} restarts its child less often and actors move along smoother lines.
+ * <p>
+ * SUCCESS: always, unless the actor cannot move along paths
+ * <p>
+ * FAILURE: if the actor has no {@link MinionMoveComponent}
+ */
+@BehaviorAction(name = "simplify_path")
+public class SimplifyPath extends BaseAction {
+    private static final Logger logger = LoggerFactory.getLogger(SimplifyPath.class);
+
+    /**
+     * The maximum length (in blocks) of a straight segment created by skipping waypoints.
+     */
+    private int maxSegmentLength = 16;
+
+    @In
+    private PluginSystem pluginSystem;
+
+    @Override
+    public void construct(Actor actor) {
+        // TODO: Temporary fix for injection malfunction, remove once https://github.com/MovingBlocks/Terasology/issues/5004 is fixed.
+        if (pluginSystem == null) {
+            pluginSystem = CoreRegistry.get(PluginSystem.class);
+        }
+    }
+
+    @Override
+    public BehaviorState modify(Actor actor, BehaviorState result) {
+        MinionMoveComponent minionMoveComponent = actor.getComponent(MinionMoveComponent.class);
+        if (minionMoveComponent == null) {
+            return BehaviorState.FAILURE;
+        }
+        int from = minionMoveComponent.getPathIndex();
+        int length = minionMoveComponent.getPathLength();
+        if (length - from < 3) {
+            return BehaviorState.SUCCESS;
+        }
+
+        JPSPlugin plugin = pluginSystem.getMovementPlugin(actor.getEntity()).getJpsPlugin(actor.getEntity());
+        if (plugin == null) {
+            // without a pathfinding plugin, there is no way to tell whether a waypoint can be skipped
+            return BehaviorState.SUCCESS;
+        }
+        PathSegments.StepCheck steps = plugin::isReachable;
+        List<Vector3i> remaining = Lists.newArrayList(minionMoveComponent.getPath().subList(from, length));
+        List<Vector3i> simplified = pullString(collapseCollinear(remaining, steps, maxSegmentLength), steps, maxSegmentLength);
+
+        if (simplified.size() < remaining.size()) {
+            logger.debug("... [{}]: simplified path from {} to {} waypoints", actor.getEntity().getId(), remaining.size(),
+                    simplified.size());
+            minionMoveComponent.replacePathSection(from, length - 1, simplified);
+            actor.save(minionMoveComponent);
+        }
+        return BehaviorState.SUCCESS;
+    }
+
+    /**
+     * Drop all waypoints lying on a level straight line between their predecessor and their successor.
+     * <p>
+     * A waypoint is only dropped if the actor can still reach the successor from the last kept waypoint in a straight line. Waypoints on
+     * slopes (e.g., stairs or leaps) are always kept, as the movement plugins decide how to climb them one step at a time.
+     */
+    static List<Vector3i> collapseCollinear(List<Vector3i> path, PathSegments.StepCheck steps, int maxSegmentLength) {
+        List<Vector3i> result = Lists.newArrayListWithCapacity(path.size());
+        result.add(path.get(0));
+        for (int i = 1; i < path.size() - 1; i++) {
+            Vector3i previous = result.get(result.size() - 1);
+            Vector3i current = path.get(i);
+            Vector3i next = path.get(i + 1);
+            if (!isLevelContinuation(previous, current, next)
+                    || next.distanceSquared(previous) > (long) maxSegmentLength * maxSegmentLength
+                    || !PathSegments.isDirectlyReachable(steps, previous, next)) {
+                result.add(current);
+            }
+        }
+        result.add(path.get(path.size() - 1));
+        return result;
+    }
+
+    /**
+     * Whether {@code next} continues the level straight line from {@code previous} through {@code current}.
+     */
+    private static boolean isLevelContinuation(Vector3i previous, Vector3i current, Vector3i next) {
+        if (previous.y != current.y || current.y != next.y) {
+            return false;
+        }
+        int ax = current.x - previous.x;
+        int az = current.z - previous.z;
+        int bx = next.x - current.x;
+        int bz = next.z - current.z;
+        boolean parallel = ax * bz - az * bx == 0;
+        boolean sameDirection = ax * bx + az * bz > 0;
+        return parallel && sameDirection;
+    }
+
+    /**
+     * Skip waypoints as long as the next kept waypoint can be reached on a level straight line.
+     */
+    static List<Vector3i> pullString(List<Vector3i> path, PathSegments.StepCheck steps, int maxSegmentLength) {
+        List<Vector3i> result = Lists.newArrayListWithCapacity(path.size());
+        int anchor = 0;
+        result.add(path.get(0));
+        while (anchor < path.size() - 1) {
+            Vector3i start = path.get(anchor);
+            int farthest = anchor + 1;
+            for (int i = anchor + 2; i < path.size(); i++) {
+                Vector3i candidate = path.get(i);
+                if (candidate.y != start.y
+                        || candidate.distanceSquared(start) > (long) maxSegmentLength * maxSegmentLength
+                        || !PathSegments.isDirectlyReachable(steps, start, candidate)) {
+                    break;
+                }
+                farthest = i;
+            }
+            result.add(path.get(farthest));
+            anchor = farthest;
+        }
+        return result;
+    }
+}
@@ -6,15 +6,24 @@ import org.joml.Vector3f;
 import org.terasology.engine.logic.behavior.BehaviorAction;
 import org.terasology.engine.logic.behavior.core.Actor;
 import org.terasology.engine.logic.behavior.core.BaseAction;
-import org.terasology.engine.logic.characters.CharacterMoveInputEvent;
 import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.registry.CoreRegistry;
+import org.terasology.engine.registry.In;
 import org.terasology.module.behaviors.components.MinionMoveComponent;
+import org.terasology.module.behaviors.systems.MinionMoveSystem;
 
 @BehaviorAction(name = "stop_moving")
 public class StopMovingAction extends BaseAction {
 
+    @In
+    private MinionMoveSystem minionMoveSystem;
+
     @Override
     public void construct(Actor actor) {
+        // TODO: Temporary fix for injection malfunction, remove once https://github.com/MovingBlocks/Terasology/issues/5004 is fixed.
+        if (minionMoveSystem == null) {
+            minionMoveSystem = CoreRegistry.get(MinionMoveSystem.class);
+        }
 
         // Calculating a lot of superfluous stuff to debug; this'll get cleaned up when stopping is figured out
         LocationComponent locationComponent = actor.getComponent(LocationComponent.class);
@@ -24,8 +33,6 @@ public class StopMovingAction extends BaseAction {
 
         float yaw = (float) Math.atan2(targetDirection.x, targetDirection.z);
 
-        CharacterMoveInputEvent wantedInput = new CharacterMoveInputEvent(0, 0, yaw, new Vector3f(), false, false, false,
-                (long) (actor.getDelta() * 1000));
-        actor.getEntity().send(wantedInput);
+        minionMoveSystem.getSteering(actor.getEntity()).stop(yaw);
     }
 }
@@ -2,35 +2,90 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.terasology.module.behaviors.actions;
 
+import org.joml.Vector3f;
 import org.joml.Vector3i;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.terasology.engine.logic.behavior.BehaviorAction;
 import org.terasology.engine.logic.behavior.core.Actor;
 import org.terasology.engine.logic.behavior.core.BaseAction;
 import org.terasology.engine.logic.behavior.core.BehaviorState;
+import org.terasology.engine.logic.location.LocationComponent;
 import org.terasology.engine.registry.CoreRegistry;
 import org.terasology.engine.registry.In;
+import org.terasology.engine.world.block.Blocks;
+import org.terasology.flexiblepathfinding.JPSConfig;
+import org.terasology.flexiblepathfinding.PathfinderCallback;
 import org.terasology.flexiblepathfinding.plugins.JPSPlugin;
 import org.terasology.module.behaviors.components.MinionMoveComponent;
+import org.terasology.module.behaviors.plugin.PathSegments;
+import org.terasology.module.behaviors.systems.PathCacheSystem;
+import org.terasology.module.behaviors.systems.PathInvalidationSystem;
+import org.terasology.module.behaviors.systems.PathSchedulerSystem;
 import org.terasology.module.behaviors.systems.PluginSystem;
 
+import java.util.List;
+
 /**
  * Validates the entity's current path for walkability (according to the pathfinding plugin it's using)
  * <p>
- * SUCCESS: when there are no unwalkable waypoints
+ * The waypoints are only checked if a block along the path changed since the path was set or last validated (see
+ * {@link PathInvalidationSystem}).
+ * <p>
+ * If {@code repair} is enabled, only the remaining waypoints are checked. A broken section is replaced by a detour searched between the
+ * last valid waypoint before and the first valid waypoint after the section, keeping the rest of the path. The detour search is
+ * bounded by {@code maxRepairDepth}. If the node is aborted while the detour is searched, the search is cancelled.
+ * <p>
+ * SUCCESS: when there are no unwalkable waypoints, or the path was repaired
+ * <p>
+ * RUNNING: while a detour is searched
  * <p>
  * FAILURE: otherwise
  */
 @BehaviorAction(name = "validate_path")
 public class ValidatePath extends BaseAction {
+    private static final Logger logger = LoggerFactory.getLogger(ValidatePath.class);
+
+    /**
+     * Whether to search for a detour around a broken path section instead of failing right away.
+     */
+    private boolean repair = false;
+
+    /**
+     * The maximum search depth for a detour.
+     */
+    private int maxRepairDepth = 20;
+
     @In
     private PluginSystem pluginSystem;
 
+    @In
+    private PathCacheSystem pathCacheSystem;
+
+    @In
+    private PathInvalidationSystem pathInvalidationSystem;
+
     @Override
     public void construct(Actor actor) {
         // TODO: Temporary fix for injection malfunction, remove once https://github.com/MovingBlocks/Terasology/issues/5004 is fixed.
         if (pluginSystem == null) {
             pluginSystem = CoreRegistry.get(PluginSystem.class);
         }
+        if (pathCacheSystem == null) {
+            pathCacheSystem = CoreRegistry.get(PathCacheSystem.class);
+        }
+        if (pathInvalidationSystem == null) {
+            pathInvalidationSystem = CoreRegistry.get(PathInvalidationSystem.class);
+        }
+        // a detour search left over from a previous, aborted run of this node is of no interest anymore
+        cancel(actor.getValue(getId()));
+        actor.setValue(getId(), null);
+    }
+
+    @Override
+    public void destruct(Actor actor) {
+        cancel(actor.getValue(getId()));
+        actor.setValue(getId(), null);
     }
 
     @Override
@@ -41,11 +96,147 @@ public class ValidatePath extends BaseAction {
         if (minionMoveComponent == null || pathfindingPlugin == null) {
             return BehaviorState.FAILURE;
         }
-        for (Vector3i pos : minionMoveComponent.getPath()) {
-            if (!pathfindingPlugin.isWalkable(pos)) {
+
+        Repair pendingRepair = actor.getValue(getId());
+        if (pendingRepair != null) {
+            return finishRepair(actor, minionMoveComponent, pendingRepair);
+        }
+
+        if (!pathInvalidationSystem.isPathInvalidated(actor.getEntity())) {
+            return BehaviorState.SUCCESS;
+        }
+
+        if (!repair) {
+            if (findUnwalkable(minionMoveComponent, 0, pathfindingPlugin) != -1) {
                 return BehaviorState.FAILURE;
             }
+            pathInvalidationSystem.markValidated(actor.getEntity());
+            return BehaviorState.SUCCESS;
         }
+
+        int broken = findUnwalkable(minionMoveComponent, minionMoveComponent.getPathIndex(), pathfindingPlugin);
+        if (broken == -1) {
+            pathInvalidationSystem.markValidated(actor.getEntity());
+            return BehaviorState.SUCCESS;
+        }
+        int resume = findWalkable(minionMoveComponent, broken + 1, pathfindingPlugin);
+        if (resume == -1) {
+            logger.debug("... [{}]: path broken up to the goal, cannot repair", actor.getEntity().getId());
+            return BehaviorState.FAILURE;
+        }
+
+        Vector3i start = broken > minionMoveComponent.getPathIndex()
+                ? minionMoveComponent.getWaypoint(broken - 1, new Vector3i())
+                : Blocks.toBlockPos(actor.getComponent(LocationComponent.class).getWorldPosition(new Vector3f()));
+        return startRepair(actor, pathfindingPlugin, start, broken, resume, minionMoveComponent.getWaypoint(resume, new Vector3i()));
+    }
+
+    private BehaviorState startRepair(Actor actor, JPSPlugin plugin, Vector3i start, int from, int to, Vector3i resumePos) {
+        JPSConfig config = new JPSConfig(start, resumePos);
+        config.useLineOfSight = false;
+        config.requester = actor.getEntity();
+        config.maxTime = 1f;
+        config.maxDepth = maxRepairDepth;
+        config.goalDistance = 0;
+        config.plugin = plugin;
+
+        Repair repairState = new Repair(from, to, resumePos, config);
+        actor.setValue(getId(), repairState);
+
+        logger.debug("... [{}]: repair path section {}..{} with detour {} -> {}", actor.getEntity().getId(), from, to, start,
+                resumePos);
+        int id = pathCacheSystem.requestPath(config, PathSchedulerSystem.Priority.REPAIR, repairState.callback);
+        if (id == -1) {
+            repairState.running = false;
+        }
+        return repairState.running ? BehaviorState.RUNNING : finishRepair(actor, actor.getComponent(MinionMoveComponent.class),
+                repairState);
+    }
+
+    private BehaviorState finishRepair(Actor actor, MinionMoveComponent minionMoveComponent, Repair repairState) {
+        if (repairState.running) {
+            return BehaviorState.RUNNING;
+        }
+        actor.setValue(getId(), null);
+
+        List<Vector3i> detour = repairState.detour;
+        if (detour == null || detour.isEmpty() || repairState.to >= minionMoveComponent.getPathLength()
+                || !minionMoveComponent.getWaypoint(repairState.to, new Vector3i()).equals(repairState.resumePos)) {
+            // no detour found, or the path was replaced while searching
+            return BehaviorState.FAILURE;
+        }
+        // the detour starts at the last valid position, which is already part of the path (or the actor's location)
+        detour.remove(0);
+        minionMoveComponent.replacePathSection(repairState.from, repairState.to, detour);
+        actor.save(minionMoveComponent);
         return BehaviorState.SUCCESS;
     }
+
+    private void cancel(Repair repairState) {
+        if (repairState == null || !repairState.running) {
+            return;
+        }
+        repairState.running = false;
+        pathCacheSystem.cancel(repairState.config, repairState.callback);
+    }
+
+    private static int findUnwalkable(MinionMoveComponent minionMoveComponent, int fromIndex, JPSPlugin plugin) {
+        // waypoints are unpacked into these two vectors in turn instead of creating one vector per waypoint
+        Vector3i previous = new Vector3i();
+        Vector3i pos = new Vector3i();
+        for (int i = fromIndex; i < minionMoveComponent.getPathLength(); i++) {
+            minionMoveComponent.getWaypoint(i, pos);
+            if (!plugin.isWalkable(pos)) {
+                return i;
+            }
+            // waypoints further apart were joined by simplify_path, the blocks in between have to be checked as well
+            if (i > fromIndex && !PathSegments.isSingleStep(previous, pos)
+                    && !PathSegments.isDirectlyReachable(plugin::isReachable, previous, pos)) {
+                return i;
+            }
+            Vector3i swap = previous;
+            previous = pos;
+            pos = swap;
+        }
+        return -1;
+    }
+
+    private static int findWalkable(MinionMoveComponent minionMoveComponent, int fromIndex, JPSPlugin plugin) {
+        Vector3i pos = new Vector3i();
+        for (int i = fromIndex; i < minionMoveComponent.getPathLength(); i++) {
+            if (plugin.isWalkable(minionMoveComponent.getWaypoint(i, pos))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The state of a running path repair for a single actor.
+     */
+    private static final class Repair {
+        /** The first broken waypoint index. */
+        private final int from;
+        /** The index of the first valid waypoint after the broken section. */
+        private final int to;
+        private final Vector3i resumePos;
+        private final JPSConfig config;
+        private final PathfinderCallback callback;
+        private boolean running = true;
+        private List<Vector3i> detour;
+
+        Repair(int from, int to, Vector3i resumePos, JPSConfig config) {
+            this.from = from;
+            this.to = to;
+            this.resumePos = resumePos;
+            this.config = config;
+            this.callback = (path, target) -> {
+                // a cancelled search may still deliver its result
+                if (running) {
+                    detour = path;
+                    running = false;
+                }
+            };
+        }
+    }
 }
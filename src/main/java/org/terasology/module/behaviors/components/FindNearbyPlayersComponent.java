@@ -11,19 +11,31 @@ import java.util.List;
 /**
  * If this components is attached to an NPC entity it will constantly look
  * around for nearby players that enter a given radius.
+ * <p>
+ * Players entering or leaving the radius are announced to the entity with a
+ * {@link org.terasology.module.behaviors.events.PlayerEnteredRangeEvent} or
+ * {@link org.terasology.module.behaviors.events.PlayerLeftRangeEvent}.
  */
 public class FindNearbyPlayersComponent implements Component<FindNearbyPlayersComponent> {
     /* Search radius for finding nearby players */
     public float searchRadius = 10f;
-    /* List of player entities nearby */
-    public List<EntityRef> charactersWithinRange;
-    /* The player entity closest to the actor */
-    public EntityRef closestCharacter;
+    /*
+     * The maximum time (in seconds) between two searches, i.e., the maximum delay until a player entering the search radius is noticed.
+     * Actors are searched in turns, so a longer interval makes the search cheaper.
+     */
+    public float scanInterval = 0.25f;
+    /* List of player entities nearby, closest first */
+    public List<EntityRef> charactersWithinRange = Lists.newArrayList();
+    /* The player entity closest to the actor, EntityRef.NULL if there is none */
+    public EntityRef closestCharacter = EntityRef.NULL;
 
     @Override
     public void copyFrom(FindNearbyPlayersComponent other) {
         this.searchRadius = other.searchRadius;
-        this.charactersWithinRange = Lists.newArrayList(other.charactersWithinRange);
+        this.scanInterval = other.scanInterval;
+        this.charactersWithinRange = other.charactersWithinRange == null
+                ? Lists.newArrayList()
+                : Lists.newArrayList(other.charactersWithinRange);
         this.closestCharacter = other.closestCharacter;
     }
 }
@@ -9,11 +9,21 @@ import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.engine.logic.location.LocationComponent;
 import org.terasology.engine.world.block.Blocks;
 import org.terasology.gestalt.entitysystem.component.Component;
+import org.terasology.module.behaviors.util.PackedCoordinates;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
 public final class MinionMoveComponent implements Component<MinionMoveComponent> {
 
+    /** The smallest coordinate a waypoint may have on any axis. */
+    public static final int MIN_WAYPOINT_COORDINATE = PackedCoordinates.MIN_COORDINATE;
+    /** The largest coordinate a waypoint may have on any axis. */
+    public static final int MAX_WAYPOINT_COORDINATE = PackedCoordinates.MAX_COORDINATE;
+
+    private static final long[] NO_WAYPOINTS = new long[0];
+
     //TODO: why do we consider this to be a good default?
     //      would it make sense to modify the walkingPlugin in a way that it allows to "leap" 1 block up by default (without requiring the
     //      leaping plugin?) the fact that we have to "leap" is mostly just due to being a blocky world, but actually we're "walking up the
@@ -63,12 +73,26 @@ public final class MinionMoveComponent implements Component<MinionMoveComponent>
      * If empty no path to the target exists, or it was not computed yet.
      * <p>
      * If the {@link #goalPosition} is reachable, the path will contain at least that position as last element.
+     * <p>
+     * The waypoints are packed into one long each (see {@link PackedCoordinates}), only the first {@link #pathLength} entries are
+     * valid. This avoids one vector object per waypoint, as paths are stored for every moving actor. Waypoint coordinates are therefore
+     * limited to the range from {@link #MIN_WAYPOINT_COORDINATE} to {@link #MAX_WAYPOINT_COORDINATE} (about one million blocks in either
+     * direction from the origin).
      */
-    private List<Vector3i> path = Lists.newArrayList();
+    private long[] path = NO_WAYPOINTS;
+
+    // number of valid waypoints in the path array above
+    private int pathLength = 0;
+
+    // read-only view on the path above
+    private final transient List<Vector3i> pathView = new PathView();
 
     // current index along path above
     private int pathIndex = 0;
 
+    // incremented whenever the path is replaced or modified, allows systems to detect path changes cheaply
+    private int pathVersion = 0;
+
     //TODO: pathfinding related fields
     //        goalPosition      : final target position
     //        goalTolerance     : maximum distance from 'goalPosition'
@@ -95,6 +119,15 @@ public final class MinionMoveComponent implements Component<MinionMoveComponent>
         resetPath();
     }
 
+    /**
+     * The entity whose location determines the final movement goal, if any.
+     *
+     * @return the entity set via {@link #setPathGoal(EntityRef)}, or 'null' if the goal is a fixed position
+     */
+    public EntityRef getPathGoalEntity() {
+        return pathGoalEntity;
+    }
+
     /**
      * Set the final movement goal to the given {@code pos}.
      *
@@ -147,8 +180,9 @@ public final class MinionMoveComponent implements Component<MinionMoveComponent>
      * Clear the stored {@link #path} and reset the {@link #pathIndex} to 0.
      */
     public void resetPath() {
-        path.clear();
+        pathLength = 0;
         pathIndex = 0;
+        pathVersion++;
     }
 
     /**
@@ -158,9 +192,7 @@ public final class MinionMoveComponent implements Component<MinionMoveComponent>
      */
     public void advancePath() {
         pathIndex += 1;
-        if (pathIndex < path.size()) {
-            target = path.get(pathIndex);
-        }
+        updateTarget();
     }
 
     /**
@@ -169,7 +201,7 @@ public final class MinionMoveComponent implements Component<MinionMoveComponent>
      * Note: finishing the path does not necessarily mean that the entity reached the goal position!
      */
     public boolean isPathFinished() {
-        return pathIndex >= path.size();
+        return pathIndex >= pathLength;
     }
 
     /**
@@ -180,23 +212,91 @@ public final class MinionMoveComponent implements Component<MinionMoveComponent>
      *       However, pathGoal may be irrelevant if pathGoalEntity is set... this is confusing...
      *
      * @param path the new path the entity should move along.
+     * @throws IllegalArgumentException if a waypoint lies outside the supported coordinate range
      */
     public void setPath(List<Vector3i> path) {
+        checkRange(path);
         resetPath();
-        this.path.addAll(path);
-        if (pathIndex < path.size()) {
-            target = path.get(pathIndex);
+        ensureCapacity(path.size());
+        for (Vector3i waypoint : path) {
+            this.path[pathLength++] = PackedCoordinates.pack(waypoint.x, waypoint.y, waypoint.z);
         }
+        updateTarget();
     }
 
+    /**
+     * Replace the waypoints from index {@code from} up to and including index {@code to} with the given waypoints.
+     * <p>
+     * The {@link #pathIndex} keeps pointing to the same waypoint: if it points behind the replaced section, it is shifted by the
+     * difference in length. If it points into the replaced section, it is moved to the start of the replacement. The {@link #target}
+     * is updated accordingly.
+     *
+     * @param from the index of the first waypoint to replace
+     * @param to the index of the last waypoint to replace
+     * @param replacement the waypoints to insert instead
+     * @throws IllegalArgumentException if a waypoint lies outside the supported coordinate range
+     */
+    public void replacePathSection(int from, int to, List<Vector3i> replacement) {
+        checkRange(replacement);
+        int removed = to + 1 - from;
+        int newLength = pathLength - removed + replacement.size();
+        ensureCapacity(newLength);
+        System.arraycopy(path, to + 1, path, from + replacement.size(), pathLength - to - 1);
+        for (int i = 0; i < replacement.size(); i++) {
+            Vector3i waypoint = replacement.get(i);
+            path[from + i] = PackedCoordinates.pack(waypoint.x, waypoint.y, waypoint.z);
+        }
+        pathLength = newLength;
+        pathVersion++;
+        if (pathIndex > to) {
+            pathIndex += replacement.size() - removed;
+        } else if (pathIndex > from) {
+            pathIndex = from;
+        }
+        updateTarget();
+    }
+
+    /**
+     * A read-only view on the waypoints of the path.
+     * <p>
+     * The view reflects later changes to the path. Every access to an element creates a new vector, use
+     * {@link #getWaypoint(int, Vector3i)} to avoid that.
+     */
     public List<Vector3i> getPath() {
-        return path;
+        return pathView;
+    }
+
+    /**
+     * The number of waypoints of the path.
+     */
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    /**
+     * Store the waypoint at the given {@code index} of the path in {@code dest}.
+     *
+     * @return dest
+     */
+    public Vector3i getWaypoint(int index, Vector3i dest) {
+        if (index < 0 || index >= pathLength) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + pathLength);
+        }
+        long packed = path[index];
+        return dest.set(PackedCoordinates.unpackX(packed), PackedCoordinates.unpackY(packed), PackedCoordinates.unpackZ(packed));
     }
 
     public int getPathIndex() {
         return pathIndex;
     }
 
+    /**
+     * A counter that changes whenever the {@link #path} is replaced or modified.
+     */
+    public int getPathVersion() {
+        return pathVersion;
+    }
+
     @Override
     public void copyFrom(MinionMoveComponent other) {
         target.set(other.target);
@@ -206,12 +306,52 @@ public final class MinionMoveComponent implements Component<MinionMoveComponent>
             setGoalPosition(other.goalPosition);
         }
         goalTolerance = other.goalTolerance;
-        path = other.path;
+        ensureCapacity(other.pathLength);
+        System.arraycopy(other.path, 0, path, 0, other.pathLength);
+        pathLength = other.pathLength;
         pathIndex = other.pathIndex; //TODO change me when migrate JOML
+        pathVersion = other.pathVersion;
         movementTypes.clear();
         movementTypes.addAll(other.movementTypes);
         collidedHorizontally = other.collidedHorizontally;
         lastInput = other.lastInput;
         sequenceNumber = other.sequenceNumber;
     }
+
+    private void updateTarget() {
+        if (pathIndex < pathLength) {
+            getWaypoint(pathIndex, target);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (path.length < capacity) {
+            path = Arrays.copyOf(path, Math.max(capacity, path.length * 2));
+        }
+    }
+
+    /**
+     * Reject waypoints that cannot be packed, before the path is modified. Packing would silently wrap their coordinates around.
+     */
+    private static void checkRange(List<Vector3i> waypoints) {
+        for (Vector3i waypoint : waypoints) {
+            if (!PackedCoordinates.isInRange(waypoint.x) || !PackedCoordinates.isInRange(waypoint.y)
+                    || !PackedCoordinates.isInRange(waypoint.z)) {
+                throw new IllegalArgumentException("Waypoint " + waypoint + " out of range ["
+                        + MIN_WAYPOINT_COORDINATE + ", " + MAX_WAYPOINT_COORDINATE + "]");
+            }
+        }
+    }
+
+    private final class PathView extends AbstractList<Vector3i> {
+        @Override
+        public Vector3i get(int index) {
+            return getWaypoint(index, new Vector3i());
+        }
+
+        @Override
+        public int size() {
+            return pathLength;
+        }
+    }
 }
@@ -5,13 +5,29 @@ package org.terasology.module.behaviors.components;
 import org.joml.Vector3f;
 import org.terasology.gestalt.entitysystem.component.Component;
 
+/**
+ * Keeps an NPC close to the place it spawned at.
+ * <p>
+ * The distance is not updated on every movement, but only when the NPC crosses the territory {@code radius} or when the distance changed
+ * by at least {@code updateThreshold}. Crossing the radius is announced with a
+ * {@link org.terasology.module.behaviors.events.TerritoryEnteredEvent} or
+ * {@link org.terasology.module.behaviors.events.TerritoryLeftEvent}.
+ */
 public class TerritoryDistance implements Component<TerritoryDistance> {
+    /* The squared distance to the center of the territory, accurate up to updateThreshold */
     public float distanceSquared;
+    /* The center of the territory */
     public Vector3f location;
+    /* The radius of the territory; behaviors checking distanceSquared should use the square of this radius */
+    public float radius = 5f;
+    /* The change of distance (in blocks) after which distanceSquared is updated even if the NPC stays within or outside the radius */
+    public float updateThreshold = 1f;
 
     @Override
     public void copyFrom(TerritoryDistance other) {
         this.distanceSquared = other.distanceSquared;
-        this.location = new Vector3f(other.location);
+        this.location = other.location == null ? null : new Vector3f(other.location);
+        this.radius = other.radius;
+        this.updateThreshold = other.updateThreshold;
     }
 }
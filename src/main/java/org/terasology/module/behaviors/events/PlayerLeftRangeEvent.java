@@ -0,0 +1,28 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.events;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.gestalt.entitysystem.event.Event;
+import org.terasology.module.behaviors.components.FindNearbyPlayersComponent;
+
+/**
+ * Sent to an actor with a {@link FindNearbyPlayersComponent} when a player character left its search radius.
+ */
+public class PlayerLeftRangeEvent implements Event {
+    private EntityRef player;
+
+    public PlayerLeftRangeEvent() {
+    }
+
+    public PlayerLeftRangeEvent(EntityRef player) {
+        this.player = player;
+    }
+
+    /**
+     * The player character that left the search radius.
+     */
+    public EntityRef getPlayer() {
+        return player;
+    }
+}
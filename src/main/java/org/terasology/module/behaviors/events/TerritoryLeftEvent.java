@@ -0,0 +1,12 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.events;
+
+import org.terasology.gestalt.entitysystem.event.Event;
+import org.terasology.module.behaviors.components.TerritoryDistance;
+
+/**
+ * Sent to an NPC with a {@link TerritoryDistance} when it left the radius of its territory.
+ */
+public class TerritoryLeftEvent implements Event {
+}
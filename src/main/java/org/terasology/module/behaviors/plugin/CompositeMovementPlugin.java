@@ -2,7 +2,7 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.terasology.module.behaviors.plugin;
 
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableList;
 import org.joml.Vector3f;
 import org.joml.Vector3fc;
 import org.joml.Vector3i;
@@ -14,17 +14,31 @@ import org.terasology.engine.world.WorldProvider;
 import org.terasology.engine.world.block.Blocks;
 import org.terasology.flexiblepathfinding.plugins.JPSPlugin;
 import org.terasology.flexiblepathfinding.plugins.basic.CompositePlugin;
+import org.terasology.module.behaviors.systems.Steering;
 
 import java.util.Collection;
 import java.util.List;
 
+/**
+ * Combines several movement plugins, moving an entity with the first plugin that can reach the destination.
+ * <p>
+ * Instances are shared between all actors of the same movement profile and hold no state of specific actors. Callers moving along the
+ * same segment on every tick (like {@code move_to}) should remember the result of {@link #selectPlugin(EntityRef, Vector3i, Vector3i)}
+ * themselves instead of calling {@link #move(EntityRef, Vector3fc, int)}, which probes the plugins again on every call.
+ */
 public class CompositeMovementPlugin extends MovementPlugin {
 
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
     private final List<MovementPlugin> plugins;
 
+    // the pathfinding plugins the cached composite was built from; only reused if all of them are still the same instances
+    private JPSPlugin[] jpsPlugins;
+    private CompositePlugin compositeJpsPlugin;
+
     public CompositeMovementPlugin(WorldProvider worldProvider, Time time, Collection<MovementPlugin> plugins) {
         super(worldProvider, time);
-        this.plugins = Lists.newArrayList(plugins);
+        this.plugins = ImmutableList.copyOf(plugins);
     }
 
     public List<MovementPlugin> getPlugins() {
@@ -33,22 +47,92 @@ public class CompositeMovementPlugin extends MovementPlugin {
 
     @Override
     public JPSPlugin getJpsPlugin(EntityRef entity) {
+        if (compositeJpsPlugin != null && isCached(entity)) {
+            return compositeJpsPlugin;
+        }
+        JPSPlugin[] newJpsPlugins = new JPSPlugin[plugins.size()];
+        CompositePlugin jpsPlugin = new CompositePlugin();
+        for (int i = 0; i < plugins.size(); i++) {
+            newJpsPlugins[i] = plugins.get(i).getJpsPlugin(entity);
+            jpsPlugin.addPlugin(newJpsPlugins[i]);
+        }
+        jpsPlugins = newJpsPlugins;
+        compositeJpsPlugin = jpsPlugin;
+        return jpsPlugin;
+    }
+
+    @Override
+    public JPSPlugin createJpsPlugin(EntityRef entity) {
         CompositePlugin jpsPlugin = new CompositePlugin();
         for (MovementPlugin plugin : plugins) {
-            jpsPlugin.addPlugin(plugin.getJpsPlugin(entity));
+            jpsPlugin.addPlugin(plugin.createJpsPlugin(entity));
         }
         return jpsPlugin;
     }
 
+    private boolean isCached(EntityRef entity) {
+        for (int i = 0; i < plugins.size(); i++) {
+            if (plugins.get(i).getJpsPlugin(entity) != jpsPlugins[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public CharacterMoveInputEvent move(EntityRef entity, Vector3fc dest, int sequence) {
-        Vector3i from = Blocks.toBlockPos(entity.getComponent(LocationComponent.class).getWorldPosition(new Vector3f()));
-        Vector3i to = Blocks.toBlockPos(dest);
-        for (MovementPlugin plugin : plugins) {
-            if (plugin.getJpsPlugin(entity).isReachable(to, from)) {
-                return plugin.move(entity, dest, sequence);
+        MovementPlugin plugin = selectPlugin(entity, dest);
+        return plugin != null ? plugin.move(entity, dest, sequence) : null;
+    }
+
+    @Override
+    public boolean move(EntityRef entity, Vector3fc dest, int sequence, Steering steering) {
+        MovementPlugin plugin = selectPlugin(entity, dest);
+        return plugin != null && plugin.move(entity, dest, sequence, steering);
+    }
+
+    /**
+     * Choose the first plugin that can move the entity from its current block to the block containing {@code dest}.
+     */
+    private MovementPlugin selectPlugin(EntityRef entity, Vector3fc dest) {
+        Scratch scratch = SCRATCH.get();
+        entity.getComponent(LocationComponent.class).getWorldPosition(scratch.position);
+        return selectPlugin(entity, Blocks.toBlockPos(scratch.position, scratch.from), Blocks.toBlockPos(dest, scratch.to));
+    }
+
+    /**
+     * Choose the first plugin that can move the entity from one block to another.
+     * <p>
+     * The blocks do not need to be neighbours, e.g., for waypoints joined by {@code simplify_path}. Such segments are checked one step
+     * at a time, as the pathfinding plugins can only judge single steps.
+     *
+     * @param entity the entity to move
+     * @param from the block the movement starts at, usually the previous waypoint
+     * @param to the block to move to
+     * @return the plugin to move with, or null if none of the plugins can reach {@code to}
+     */
+    public MovementPlugin selectPlugin(EntityRef entity, Vector3i from, Vector3i to) {
+        boolean singleStep = PathSegments.isSingleStep(from, to);
+        for (int i = 0; i < plugins.size(); i++) {
+            MovementPlugin plugin = plugins.get(i);
+            JPSPlugin jpsPlugin = plugin.getJpsPlugin(entity);
+            // most segments are single steps, which are asked directly instead of going through a step check
+            boolean reachable = singleStep
+                    ? jpsPlugin.isReachable(to, from)
+                    : PathSegments.isDirectlyReachable(jpsPlugin::isReachable, from, to);
+            if (reachable) {
+                return plugin;
             }
         }
         return null;
     }
+
+    /**
+     * Vectors reused across calls, never handed out beyond a single call of {@link #selectPlugin(EntityRef, Vector3fc)}.
+     */
+    private static final class Scratch {
+        private final Vector3f position = new Vector3f();
+        private final Vector3i from = new Vector3i();
+        private final Vector3i to = new Vector3i();
+    }
 }
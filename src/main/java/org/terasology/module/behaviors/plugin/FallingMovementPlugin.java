@@ -17,6 +17,7 @@ import org.terasology.engine.logic.location.LocationComponent;
 import org.terasology.engine.world.WorldProvider;
 import org.terasology.flexiblepathfinding.plugins.JPSPlugin;
 import org.terasology.flexiblepathfinding.plugins.basic.FallingPlugin;
+import org.terasology.module.behaviors.systems.Steering;
 
 public class FallingMovementPlugin extends MovementPlugin {
 
@@ -32,12 +33,21 @@ public class FallingMovementPlugin extends MovementPlugin {
 
     @Override
     public JPSPlugin getJpsPlugin(EntityRef entity) {
-        CharacterMovementComponent component = entity.getComponent(CharacterMovementComponent.class);
-        return new FallingPlugin(getWorld(), component.radius * 2.0f, component.height);
+        return getSharedJpsPlugin(entity, FallingPlugin::new);
+    }
+
+    @Override
+    public JPSPlugin createJpsPlugin(EntityRef entity) {
+        return createJpsPlugin(entity, FallingPlugin::new);
     }
 
     @Override
     public CharacterMoveInputEvent move(EntityRef entity, Vector3fc dest, int sequence) {
+        return toMoveInput(entity, dest, sequence);
+    }
+
+    @Override
+    public boolean move(EntityRef entity, Vector3fc dest, int sequence, Steering steering) {
         if (logger.isDebugEnabled()) {
             logger.debug("--> [{}] {} move: {} - current: {} - destination: {}",
                     entity.getId(),
@@ -46,6 +56,7 @@ public class FallingMovementPlugin extends MovementPlugin {
                     entity.getComponent(LocationComponent.class).getWorldPosition(new Vector3f()),
                     dest);
         }
+
         CharacterMovementComponent movement = entity.getComponent(CharacterMovementComponent.class);
         // The other basic plugins assume that the entity is not affected by gravity. However, in this specific case of falling,
         // we actually want gravity on the NPC. Therefore, we need to make sure that we're in a movement mode that has non-zero
@@ -54,10 +65,7 @@ public class FallingMovementPlugin extends MovementPlugin {
             entity.send(new SetMovementModeEvent(MovementMode.WALKING));
         }
         //TODO: ensure that 'dest' is below the entity's location? What should we do in case we missed the 'dest'?
-        Vector3f delta = getDelta(entity, dest);
-        float yaw = getYaw(delta);
-        long dt = getTime().getGameDeltaInMs();
-
-        return new CharacterMoveInputEvent(sequence, 0, yaw, delta, false, false, false, dt);
+        steer(steering, entity, dest, sequence, false, false);
+        return true;
     }
 }
@@ -16,7 +16,7 @@ import org.terasology.engine.logic.location.LocationComponent;
 import org.terasology.engine.world.WorldProvider;
 import org.terasology.flexiblepathfinding.plugins.JPSPlugin;
 import org.terasology.flexiblepathfinding.plugins.basic.FlyingPlugin;
-import org.terasology.math.TeraMath;
+import org.terasology.module.behaviors.systems.Steering;
 
 public class FlyingMovementPlugin extends MovementPlugin {
     private static final Logger logger = LoggerFactory.getLogger(LeapingMovementPlugin.class);
@@ -31,12 +31,21 @@ public class FlyingMovementPlugin extends MovementPlugin {
 
     @Override
     public JPSPlugin getJpsPlugin(EntityRef entity) {
-        CharacterMovementComponent component = entity.getComponent(CharacterMovementComponent.class);
-        return new FlyingPlugin(getWorld(), component.radius * 2.0f, component.height);
+        return getSharedJpsPlugin(entity, FlyingPlugin::new);
+    }
+
+    @Override
+    public JPSPlugin createJpsPlugin(EntityRef entity) {
+        return createJpsPlugin(entity, FlyingPlugin::new);
     }
 
     @Override
     public CharacterMoveInputEvent move(EntityRef entity, Vector3fc dest, int sequence) {
+        return toMoveInput(entity, dest, sequence);
+    }
+
+    @Override
+    public boolean move(EntityRef entity, Vector3fc dest, int sequence, Steering steering) {
         if (logger.isDebugEnabled()) {
             logger.debug("--> [{}] {} move: {} - current: {} - destination: {}",
                     entity.getId(),
@@ -46,20 +55,12 @@ public class FlyingMovementPlugin extends MovementPlugin {
                     dest);
         }
 
-        Vector3f delta = getDelta(entity, dest);
-        float yaw = getYaw(delta);
-        long dt = getTime().getGameDeltaInMs();
-        float pitch = getPitch(delta);
-
         CharacterMovementComponent movement = entity.getComponent(CharacterMovementComponent.class);
         if (movement.mode != MovementMode.FLYING) {
             entity.send(new SetMovementModeEvent(MovementMode.FLYING));
         }
 
-        return new CharacterMoveInputEvent(sequence, pitch, yaw, delta, false, false, true, dt);
-    }
-
-    private float getPitch(Vector3f delta) {
-        return ((float) Math.atan2(delta.y, Math.hypot(delta.x, delta.z))) * TeraMath.RAD_TO_DEG + 180;
+        steer(steering, entity, dest, sequence, true, true);
+        return true;
     }
 }
@@ -0,0 +1,88 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.plugin;
+
+import com.google.common.collect.Maps;
+import org.terasology.engine.world.WorldProvider;
+import org.terasology.flexiblepathfinding.plugins.JPSPlugin;
+
+import java.util.Map;
+
+/**
+ * Shared pool of pathfinding plugins, one instance per plugin type and character bounding dimensions.
+ * <p>
+ * The basic FlexiblePathfinding plugins only depend on the world and the dimensions of the character, so all actors with the same
+ * profile (e.g., the default 0.3 radius and 0.9 height) can use the same {@link JPSPlugin} instance.
+ * <p>
+ * Movement plugins keep the plugin they got from the registry (see {@link MovementPlugin#getSharedJpsPlugin}), so the registry is only
+ * consulted when a movement plugin is used for the first time or for different dimensions.
+ */
+public class JpsPluginRegistry {
+
+    /**
+     * Creates a new pathfinding plugin for the given character dimensions.
+     */
+    @FunctionalInterface
+    public interface Factory {
+        JPSPlugin create(WorldProvider world, float width, float height);
+    }
+
+    private final Map<Key, JPSPlugin> plugins = Maps.newHashMap();
+
+    /**
+     * Retrieve the shared pathfinding plugin for the given type and dimensions, creating it on first request.
+     *
+     * @param type the movement plugin type the pathfinding plugin belongs to
+     * @param world the world the pathfinding plugin operates on
+     * @param width the width of the character's bounding box
+     * @param height the height of the character's bounding box
+     * @param factory used to create the pathfinding plugin if it is not yet known
+     * @return the shared pathfinding plugin instance
+     */
+    public JPSPlugin get(Class<? extends MovementPlugin> type, WorldProvider world, float width, float height, Factory factory) {
+        Key key = new Key(type, width, height);
+        JPSPlugin plugin = plugins.get(key);
+        if (plugin == null) {
+            plugin = factory.create(world, width, height);
+            plugins.put(key, plugin);
+        }
+        return plugin;
+    }
+
+    public void clear() {
+        plugins.clear();
+    }
+
+    private static final class Key {
+        private final Class<? extends MovementPlugin> type;
+        private final float width;
+        private final float height;
+
+        Key(Class<? extends MovementPlugin> type, float width, float height) {
+            this.type = type;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Float.compare(key.width, width) == 0
+                    && Float.compare(key.height, height) == 0
+                    && type.equals(key.type);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = type.hashCode();
+            result = 31 * result + Float.floatToIntBits(width);
+            return 31 * result + Float.floatToIntBits(height);
+        }
+    }
+}
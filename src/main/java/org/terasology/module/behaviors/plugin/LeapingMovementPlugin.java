@@ -16,6 +16,7 @@ import org.terasology.engine.logic.location.LocationComponent;
 import org.terasology.engine.world.WorldProvider;
 import org.terasology.flexiblepathfinding.plugins.JPSPlugin;
 import org.terasology.flexiblepathfinding.plugins.basic.LeapingPlugin;
+import org.terasology.module.behaviors.systems.Steering;
 
 public class LeapingMovementPlugin extends MovementPlugin {
     private static final Logger logger = LoggerFactory.getLogger(LeapingMovementPlugin.class);
@@ -30,12 +31,21 @@ public class LeapingMovementPlugin extends MovementPlugin {
 
     @Override
     public JPSPlugin getJpsPlugin(EntityRef entity) {
-        CharacterMovementComponent component = entity.getComponent(CharacterMovementComponent.class);
-        return new LeapingPlugin(getWorld(), component.radius * 2.0f, component.height);
+        return getSharedJpsPlugin(entity, LeapingPlugin::new);
+    }
+
+    @Override
+    public JPSPlugin createJpsPlugin(EntityRef entity) {
+        return createJpsPlugin(entity, LeapingPlugin::new);
     }
 
     @Override
     public CharacterMoveInputEvent move(EntityRef entity, Vector3fc dest, int sequence) {
+        return toMoveInput(entity, dest, sequence);
+    }
+
+    @Override
+    public boolean move(EntityRef entity, Vector3fc dest, int sequence, Steering steering) {
         if (logger.isDebugEnabled()) {
             logger.debug("--> [{}] {} move: {} - current: {} - destination: {}",
                     entity.getId(),
@@ -52,10 +62,7 @@ public class LeapingMovementPlugin extends MovementPlugin {
             entity.send(new SetMovementModeEvent(MovementMode.FLYING));
         }
 
-        Vector3f delta = getDelta(entity, dest);
-        float yaw = getYaw(delta);
-        long dt = getTime().getGameDeltaInMs();
-
-        return new CharacterMoveInputEvent(sequence, 0, yaw, delta, false, false, true, dt);
+        steer(steering, entity, dest, sequence, false, true);
+        return true;
     }
 }
@@ -12,10 +12,20 @@ import org.terasology.engine.logic.location.LocationComponent;
 import org.terasology.engine.world.WorldProvider;
 import org.terasology.flexiblepathfinding.plugins.JPSPlugin;
 import org.terasology.math.TeraMath;
+import org.terasology.module.behaviors.systems.Steering;
 
 public abstract class MovementPlugin {
+    // the movement computed by steer, copied into the steering right away
+    private static final ThreadLocal<Vector3f> DELTA = ThreadLocal.withInitial(Vector3f::new);
+
     private WorldProvider world;
     private Time time;
+    private JpsPluginRegistry jpsPluginRegistry;
+
+    // the pathfinding plugin resolved last, reused as long as the character dimensions stay the same
+    private JPSPlugin jpsPlugin;
+    private float jpsPluginWidth;
+    private float jpsPluginHeight;
 
     public MovementPlugin(WorldProvider world, Time time) {
         this.time = time;
@@ -33,14 +43,48 @@ public abstract class MovementPlugin {
 
     public abstract JPSPlugin getJpsPlugin(EntityRef entity);
 
+    /**
+     * Create a pathfinding plugin for the given entity that is not shared with anyone else.
+     * <p>
+     * The plugins returned by {@link #getJpsPlugin(EntityRef)} are shared between all actors and used by the pathfinder threads, so a
+     * search running on another thread (e.g., on the game thread) should work on an instance of its own. Movement plugins whose
+     * pathfinding plugin holds no state may keep the default, which returns the shared instance.
+     */
+    public JPSPlugin createJpsPlugin(EntityRef entity) {
+        return getJpsPlugin(entity);
+    }
+
     public abstract CharacterMoveInputEvent move(EntityRef entity, Vector3fc dest, int sequence);
 
+    /**
+     * Compute the movement of the given entity towards {@code dest} and write it into the given steering.
+     * <p>
+     * This is the variant used by {@code move_to} on every tick. The default implementation merges the event returned by
+     * {@link #move(EntityRef, Vector3fc, int)}. Plugins should override it to write into the steering directly, so that no event has
+     * to be created.
+     *
+     * @param entity the entity to move
+     * @param dest the position to move to
+     * @param sequence the sequence number of the input
+     * @param steering the steering of the entity in the current tick
+     * @return false if the plugin cannot compute a movement, in which case the steering is left untouched
+     */
+    public boolean move(EntityRef entity, Vector3fc dest, int sequence, Steering steering) {
+        CharacterMoveInputEvent input = move(entity, dest, sequence);
+        if (input == null) {
+            return false;
+        }
+        steering.move(input);
+        return true;
+    }
+
     public WorldProvider getWorld() {
         return world;
     }
 
     public void setWorld(WorldProvider world) {
         this.world = world;
+        this.jpsPlugin = null;
     }
 
     public Time getTime() {
@@ -51,16 +95,104 @@ public abstract class MovementPlugin {
         this.time = time;
     }
 
+    public JpsPluginRegistry getJpsPluginRegistry() {
+        return jpsPluginRegistry;
+    }
+
+    public void setJpsPluginRegistry(JpsPluginRegistry jpsPluginRegistry) {
+        this.jpsPluginRegistry = jpsPluginRegistry;
+        this.jpsPlugin = null;
+    }
+
+    /**
+     * Retrieve the pathfinding plugin matching the given entity's bounding dimensions.
+     * <p>
+     * The plugin is resolved once and kept for as long as this movement plugin is asked for entities of the same dimensions, which is
+     * always the case for plugins handed out by the {@link org.terasology.module.behaviors.systems.PluginSystem}. If a
+     * {@link JpsPluginRegistry} is set, the resolved plugin is shared with all other movement plugins of the same type and dimensions.
+     *
+     * @param entity the entity to get the pathfinding plugin for; must have a {@link CharacterMovementComponent}
+     * @param factory used to create the pathfinding plugin if no shared instance exists yet
+     */
+    protected JPSPlugin getSharedJpsPlugin(EntityRef entity, JpsPluginRegistry.Factory factory) {
+        CharacterMovementComponent component = entity.getComponent(CharacterMovementComponent.class);
+        float width = component.radius * 2.0f;
+        float height = component.height;
+        if (jpsPlugin != null && jpsPluginWidth == width && jpsPluginHeight == height) {
+            return jpsPlugin;
+        }
+        if (jpsPluginRegistry == null) {
+            jpsPlugin = factory.create(world, width, height);
+        } else {
+            jpsPlugin = jpsPluginRegistry.get(getClass(), world, width, height, factory);
+        }
+        jpsPluginWidth = width;
+        jpsPluginHeight = height;
+        return jpsPlugin;
+    }
+
+    /**
+     * Create a new pathfinding plugin matching the given entity's bounding dimensions, bypassing the {@link JpsPluginRegistry}.
+     *
+     * @param entity the entity to create the pathfinding plugin for; must have a {@link CharacterMovementComponent}
+     * @param factory used to create the pathfinding plugin
+     */
+    protected JPSPlugin createJpsPlugin(EntityRef entity, JpsPluginRegistry.Factory factory) {
+        CharacterMovementComponent component = entity.getComponent(CharacterMovementComponent.class);
+        return factory.create(world, component.radius * 2.0f, component.height);
+    }
+
     public float getYaw(Vector3fc delta) {
         return ((float) Math.atan2(delta.x(), delta.z())) * TeraMath.RAD_TO_DEG + 180.0f;
     }
 
+    public float getPitch(Vector3fc delta) {
+        return ((float) Math.atan2(delta.y(), Math.hypot(delta.x(), delta.z()))) * TeraMath.RAD_TO_DEG + 180;
+    }
+
     public Vector3f getDelta(EntityRef entity, Vector3fc dest) {
+        return getDelta(entity, dest, new Vector3f());
+    }
+
+    /**
+     * The movement needed to get from the entity's location to {@code dest} within the current tick.
+     *
+     * @param result will hold the result
+     * @return result
+     */
+    public Vector3f getDelta(EntityRef entity, Vector3fc dest, Vector3f result) {
         LocationComponent location = entity.getComponent(LocationComponent.class);
         CharacterMovementComponent movement = entity.getComponent(CharacterMovementComponent.class);
 
-        Vector3f delta = dest.sub(location.getWorldPosition(new Vector3f()), new Vector3f());
-        delta.div(movement.speedMultiplier).div(getTime().getGameDelta());
-        return delta;
+        location.getWorldPosition(result);
+        dest.sub(result, result);
+        return result.div(movement.speedMultiplier).div(getTime().getGameDelta());
+    }
+
+    /**
+     * Write a straight movement towards {@code dest} into the given steering, facing into the direction of the movement.
+     *
+     * @param pitched whether to take the pitch from the movement, e.g., for flying or swimming, or keep it level
+     * @param jump whether to request a jump
+     */
+    protected void steer(Steering steering, EntityRef entity, Vector3fc dest, int sequence, boolean pitched, boolean jump) {
+        Vector3f delta = getDelta(entity, dest, DELTA.get());
+        float pitch = pitched ? getPitch(delta) : 0;
+        steering.move(delta, getYaw(delta), pitch, sequence, jump, getTime().getGameDeltaInMs());
+    }
+
+    /**
+     * Create the input event for the movement written by {@link #move(EntityRef, Vector3fc, int, Steering)}, for plugins implementing
+     * the event variant on top of the steering variant.
+     *
+     * @return the input event, or null if the plugin cannot compute a movement
+     */
+    protected CharacterMoveInputEvent toMoveInput(EntityRef entity, Vector3fc dest, int sequence) {
+        Steering steering = new Steering();
+        if (!move(entity, dest, sequence, steering)) {
+            return null;
+        }
+        return new CharacterMoveInputEvent(steering.sequenceNumber, steering.movePitch, steering.moveYaw, new Vector3f(steering.drive),
+                false, false, steering.jump, steering.delta);
     }
 }
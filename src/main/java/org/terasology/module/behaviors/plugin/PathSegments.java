@@ -0,0 +1,110 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.plugin;
+
+import org.joml.Vector3i;
+
+/**
+ * Checks for straight path segments spanning more than a single block, e.g., after waypoints were dropped by {@code simplify_path}.
+ * <p>
+ * Pathfinding plugins only judge single steps between neighbouring blocks, so a longer segment is broken down into the steps along it.
+ */
+public final class PathSegments {
+
+    /**
+     * Tells whether a single step between neighbouring blocks is possible, usually {@code JPSPlugin::isReachable}.
+     */
+    @FunctionalInterface
+    public interface StepCheck {
+        boolean isReachable(Vector3i to, Vector3i from);
+    }
+
+    private PathSegments() {
+    }
+
+    /**
+     * Whether {@code from} and {@code to} are the same or neighbouring blocks, including diagonal neighbours.
+     */
+    public static boolean isSingleStep(Vector3i from, Vector3i to) {
+        return Math.abs(to.x - from.x) <= 1 && Math.abs(to.y - from.y) <= 1 && Math.abs(to.z - from.z) <= 1;
+    }
+
+    /**
+     * Whether an actor can move from {@code from} to {@code to} on a straight line, taking one step at a time.
+     * <p>
+     * A single step is checked directly. On level ground, every block crossed by the line between the block centers is checked.
+     * Otherwise, the line has to run through block centers only (e.g., a straight staircase), and every block on it is checked.
+     */
+    public static boolean isDirectlyReachable(StepCheck steps, Vector3i from, Vector3i to) {
+        if (isSingleStep(from, to)) {
+            return steps.isReachable(to, from);
+        }
+        int dx = to.x - from.x;
+        int dy = to.y - from.y;
+        int dz = to.z - from.z;
+        Vector3i current = new Vector3i(from);
+        Vector3i next = new Vector3i();
+
+        if (dy != 0) {
+            int count = gcd(Math.abs(dx), gcd(Math.abs(dy), Math.abs(dz)));
+            int ux = dx / count;
+            int uy = dy / count;
+            int uz = dz / count;
+            if (Math.abs(ux) > 1 || Math.abs(uy) > 1 || Math.abs(uz) > 1) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                next.set(current).add(ux, uy, uz);
+                if (!steps.isReachable(next, current)) {
+                    return false;
+                }
+                current.set(next);
+            }
+            return true;
+        }
+
+        int stepX = Integer.signum(dx);
+        int stepZ = Integer.signum(dz);
+        int nx = Math.abs(dx);
+        int nz = Math.abs(dz);
+        Vector3i via = new Vector3i();
+        int ix = 0;
+        int iz = 0;
+        while (ix < nx || iz < nz) {
+            // compare at which fraction of the line the next x and z block boundaries are crossed
+            long decision = (1 + 2L * ix) * nz - (1 + 2L * iz) * nx;
+            if (decision == 0) {
+                // the line passes exactly through a block corner, both blocks next to it have to be passable
+                next.set(current).add(stepX, 0, stepZ);
+                if (!steps.isReachable(via.set(current).add(stepX, 0, 0), current) || !steps.isReachable(next, via)
+                        || !steps.isReachable(via.set(current).add(0, 0, stepZ), current) || !steps.isReachable(next, via)) {
+                    return false;
+                }
+                ix++;
+                iz++;
+            } else {
+                if (decision < 0) {
+                    next.set(current).add(stepX, 0, 0);
+                    ix++;
+                } else {
+                    next.set(current).add(0, 0, stepZ);
+                    iz++;
+                }
+                if (!steps.isReachable(next, current)) {
+                    return false;
+                }
+            }
+            current.set(next);
+        }
+        return true;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -14,7 +14,7 @@ import org.terasology.engine.logic.location.LocationComponent;
 import org.terasology.engine.world.WorldProvider;
 import org.terasology.flexiblepathfinding.plugins.JPSPlugin;
 import org.terasology.flexiblepathfinding.plugins.basic.SwimmingPlugin;
-import org.terasology.math.TeraMath;
+import org.terasology.module.behaviors.systems.Steering;
 
 public class SwimmingMovementPlugin extends MovementPlugin {
     private static final Logger logger = LoggerFactory.getLogger(LeapingMovementPlugin.class);
@@ -29,12 +29,21 @@ public class SwimmingMovementPlugin extends MovementPlugin {
 
     @Override
     public JPSPlugin getJpsPlugin(EntityRef entity) {
-        CharacterMovementComponent component = entity.getComponent(CharacterMovementComponent.class);
-        return new SwimmingPlugin(getWorld(), component.radius * 2.0f, component.height);
+        return getSharedJpsPlugin(entity, SwimmingPlugin::new);
+    }
+
+    @Override
+    public JPSPlugin createJpsPlugin(EntityRef entity) {
+        return createJpsPlugin(entity, SwimmingPlugin::new);
     }
 
     @Override
     public CharacterMoveInputEvent move(EntityRef entity, Vector3fc dest, int sequence) {
+        return toMoveInput(entity, dest, sequence);
+    }
+
+    @Override
+    public boolean move(EntityRef entity, Vector3fc dest, int sequence, Steering steering) {
         if (logger.isDebugEnabled()) {
             logger.debug("--> [{}] {} move: {} - current: {} - destination: {}",
                     entity.getId(),
@@ -44,16 +53,8 @@ public class SwimmingMovementPlugin extends MovementPlugin {
                     dest);
         }
 
-        Vector3f delta = getDelta(entity, dest);
-        float yaw = getYaw(delta);
-        long dt = getTime().getGameDeltaInMs();
-        float pitch = getPitch(delta);
-
         CharacterMovementComponent movement = entity.getComponent(CharacterMovementComponent.class);
-        return new CharacterMoveInputEvent(sequence, pitch, yaw, delta, false, false, movement.grounded, dt);
-    }
-
-    private float getPitch(Vector3f delta) {
-        return ((float) Math.atan2(delta.y, Math.hypot(delta.x, delta.z))) * TeraMath.RAD_TO_DEG + 180;
+        steer(steering, entity, dest, sequence, true, movement.grounded);
+        return true;
     }
 }
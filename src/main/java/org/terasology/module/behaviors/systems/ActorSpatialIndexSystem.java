@@ -0,0 +1,307 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.systems;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnChangedComponent;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.entitysystem.component.Component;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.module.behaviors.components.MinionMoveComponent;
+import org.terasology.module.behaviors.util.PackedCoordinates;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers which actors are near a position, e.g., for herding, separation, or looking for allies.
+ * <p>
+ * All actors with a {@link MinionMoveComponent} and a {@link LocationComponent} are kept in a uniform grid. The grid is updated
+ * incrementally whenever the location of an actor changes, so actors standing still cost nothing, and queries only visit the grid cells
+ * overlapping the search area.
+ * <p>
+ * Queries can be restricted to actors having a certain component. Positions are those of the last location change, i.e., of the
+ * current tick for moving actors. Queries covering more grid cells than there are occupied cells visit the occupied cells instead, so
+ * that large search areas cost no more than checking every actor.
+ */
+@Share(ActorSpatialIndexSystem.class)
+@RegisterSystem(RegisterMode.AUTHORITY)
+public class ActorSpatialIndexSystem extends BaseComponentSystem {
+
+    /** The edge length of a grid cell in blocks, expressed as bit shift. */
+    private static final int CELL_SHIFT = 3;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+    /** The number of shells covering all cell coordinates that can be told apart by their key. */
+    private static final int MAX_SHELL = PackedCoordinates.MAX_COORDINATE - PackedCoordinates.MIN_COORDINATE + 1;
+
+    private final Map<Long, Set<EntityRef>> actorsByCell = Maps.newHashMap();
+    private final Map<EntityRef, IndexedActor> indexedActors = Maps.newHashMap();
+
+    // reused across queries to collect matching actors
+    private final List<IndexedActor> candidates = Lists.newArrayList();
+
+    @Override
+    public void shutdown() {
+        actorsByCell.clear();
+        indexedActors.clear();
+        candidates.clear();
+        super.shutdown();
+    }
+
+    /**
+     * The number of actors in the index.
+     */
+    public int size() {
+        return indexedActors.size();
+    }
+
+    /**
+     * All actors within {@code radius} of {@code center}, in no particular order.
+     *
+     * @param center the center of the search sphere
+     * @param radius the radius (in blocks) of the search sphere
+     * @param requiredComponent only actors having this component are returned, or all actors if null
+     */
+    public List<EntityRef> findWithinRange(Vector3fc center, float radius, Class<? extends Component> requiredComponent) {
+        return findWithinRange(center, radius, requiredComponent, EntityRef.NULL);
+    }
+
+    /**
+     * All other actors within {@code radius} of the given actor, in no particular order.
+     *
+     * @param actor the actor to search around, not part of the result
+     * @param radius the radius (in blocks) of the search sphere
+     * @param requiredComponent only actors having this component are returned, or all actors if null
+     * @return the actors within range, empty if the given actor is not indexed
+     */
+    public List<EntityRef> findNeighbours(EntityRef actor, float radius, Class<? extends Component> requiredComponent) {
+        IndexedActor indexedActor = indexedActors.get(actor);
+        if (indexedActor == null) {
+            return Collections.emptyList();
+        }
+        return findWithinRange(indexedActor.position, radius, requiredComponent, actor);
+    }
+
+    /**
+     * The {@code count} actors closest to {@code center}, closest first.
+     *
+     * @param center the position to measure from
+     * @param count the maximum number of actors to return
+     * @param maxDistance the maximum distance (in blocks) of the returned actors
+     * @param requiredComponent only actors having this component are returned, or all actors if null
+     */
+    public List<EntityRef> findNearest(Vector3fc center, int count, float maxDistance, Class<? extends Component> requiredComponent) {
+        return findNearest(center, count, maxDistance, requiredComponent, EntityRef.NULL);
+    }
+
+    /**
+     * The {@code count} other actors closest to the given actor, closest first.
+     *
+     * @param actor the actor to measure from, not part of the result
+     * @param count the maximum number of actors to return
+     * @param maxDistance the maximum distance (in blocks) of the returned actors
+     * @param requiredComponent only actors having this component are returned, or all actors if null
+     * @return the closest actors, empty if the given actor is not indexed
+     */
+    public List<EntityRef> findNearestNeighbours(EntityRef actor, int count, float maxDistance,
+                                                 Class<? extends Component> requiredComponent) {
+        IndexedActor indexedActor = indexedActors.get(actor);
+        if (indexedActor == null) {
+            return Collections.emptyList();
+        }
+        return findNearest(indexedActor.position, count, maxDistance, requiredComponent, actor);
+    }
+
+    @ReceiveEvent(components = {MinionMoveComponent.class, LocationComponent.class})
+    public void onActorActivated(OnActivatedComponent event, EntityRef entity, LocationComponent location) {
+        update(entity, location);
+    }
+
+    @ReceiveEvent(components = {MinionMoveComponent.class, LocationComponent.class})
+    public void onLocationChanged(OnChangedComponent event, EntityRef entity, LocationComponent location) {
+        update(entity, location);
+    }
+
+    @ReceiveEvent(components = {MinionMoveComponent.class, LocationComponent.class})
+    public void onActorDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        IndexedActor indexedActor = indexedActors.remove(entity);
+        if (indexedActor != null) {
+            removeFromCell(indexedActor.cell, entity);
+        }
+    }
+
+    private void update(EntityRef entity, LocationComponent location) {
+        IndexedActor indexedActor = indexedActors.get(entity);
+        if (indexedActor == null) {
+            indexedActor = new IndexedActor(entity);
+            location.getWorldPosition(indexedActor.position);
+            indexedActor.cell = cellKey(indexedActor.position);
+            indexedActors.put(entity, indexedActor);
+            actorsByCell.computeIfAbsent(indexedActor.cell, k -> Sets.newHashSet()).add(entity);
+            return;
+        }
+
+        location.getWorldPosition(indexedActor.position);
+        long cell = cellKey(indexedActor.position);
+        if (cell != indexedActor.cell) {
+            removeFromCell(indexedActor.cell, entity);
+            indexedActor.cell = cell;
+            actorsByCell.computeIfAbsent(cell, k -> Sets.newHashSet()).add(entity);
+        }
+    }
+
+    private void removeFromCell(long cell, EntityRef entity) {
+        Set<EntityRef> actors = actorsByCell.get(cell);
+        if (actors != null) {
+            actors.remove(entity);
+            if (actors.isEmpty()) {
+                actorsByCell.remove(cell);
+            }
+        }
+    }
+
+    private List<EntityRef> findWithinRange(Vector3fc center, float radius, Class<? extends Component> requiredComponent,
+                                            EntityRef excluded) {
+        if (indexedActors.isEmpty()) {
+            return Collections.emptyList();
+        }
+        float radiusSquared = radius * radius;
+        int minX = cell(center.x() - radius);
+        int minY = cell(center.y() - radius);
+        int minZ = cell(center.z() - radius);
+        int maxX = cell(center.x() + radius);
+        int maxY = cell(center.y() + radius);
+        int maxZ = cell(center.z() + radius);
+        candidates.clear();
+        if ((maxX - (double) minX + 1) * (maxY - (double) minY + 1) * (maxZ - (double) minZ + 1) > actorsByCell.size()) {
+            for (long cell : actorsByCell.keySet()) {
+                collect(cell, center, radiusSquared, requiredComponent, excluded);
+            }
+        } else {
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        collect(PackedCoordinates.pack(x, y, z), center, radiusSquared, requiredComponent, excluded);
+                    }
+                }
+            }
+        }
+        List<EntityRef> result = Lists.newArrayListWithCapacity(candidates.size());
+        for (IndexedActor candidate : candidates) {
+            result.add(candidate.entity);
+        }
+        candidates.clear();
+        return result;
+    }
+
+    /**
+     * Search the grid in growing shells of cells around the center cell, until the closest actors found so far are closer than any
+     * actor in the cells not searched yet.
+     * <p>
+     * Once more cells have been visited than there are occupied cells, the remaining occupied cells are checked directly instead.
+     */
+    private List<EntityRef> findNearest(Vector3fc center, int count, float maxDistance, Class<? extends Component> requiredComponent,
+                                        EntityRef excluded) {
+        if (count <= 0 || indexedActors.isEmpty()) {
+            return Collections.emptyList();
+        }
+        float maxDistanceSquared = maxDistance * maxDistance;
+        int centerX = cell(center.x());
+        int centerY = cell(center.y());
+        int centerZ = cell(center.z());
+        int maxShell = (int) Math.min(Math.ceil(maxDistance / CELL_SIZE) + 1, MAX_SHELL);
+        Comparator<IndexedActor> byDistance = Comparator.comparingDouble(actor -> actor.position.distanceSquared(center));
+
+        candidates.clear();
+        long visitedCells = 0;
+        for (int shell = 0; shell <= maxShell; shell++) {
+            if (visitedCells > actorsByCell.size()) {
+                candidates.clear();
+                for (long cell : actorsByCell.keySet()) {
+                    collect(cell, center, maxDistanceSquared, requiredComponent, excluded);
+                }
+                break;
+            }
+            for (int x = centerX - shell; x <= centerX + shell; x++) {
+                for (int y = centerY - shell; y <= centerY + shell; y++) {
+                    boolean onShell = Math.abs(x - centerX) == shell || Math.abs(y - centerY) == shell;
+                    // inside the shell, only the two cells on its surface have to be visited
+                    int step = onShell ? 1 : Math.max(2 * shell, 1);
+                    for (int z = centerZ - shell; z <= centerZ + shell; z += step) {
+                        collect(PackedCoordinates.pack(x, y, z), center, maxDistanceSquared, requiredComponent, excluded);
+                        visitedCells++;
+                    }
+                }
+            }
+
+            // any actor in the cells not searched yet is at least this far away
+            float searchedDistance = (float) shell * CELL_SIZE;
+            if (candidates.size() >= count) {
+                candidates.sort(byDistance);
+                if (candidates.get(count - 1).position.distanceSquared(center) <= searchedDistance * searchedDistance) {
+                    break;
+                }
+            }
+        }
+
+        candidates.sort(byDistance);
+        int resultSize = Math.min(count, candidates.size());
+        List<EntityRef> result = Lists.newArrayListWithCapacity(resultSize);
+        for (int i = 0; i < resultSize; i++) {
+            result.add(candidates.get(i).entity);
+        }
+        candidates.clear();
+        return result;
+    }
+
+    private void collect(long cell, Vector3fc center, float maxDistanceSquared, Class<? extends Component> requiredComponent,
+                         EntityRef excluded) {
+        Set<EntityRef> actors = actorsByCell.get(cell);
+        if (actors == null) {
+            return;
+        }
+        for (EntityRef actor : actors) {
+            IndexedActor indexedActor = indexedActors.get(actor);
+            if (!actor.equals(excluded) && indexedActor.position.distanceSquared(center) <= maxDistanceSquared
+                    && matches(actor, requiredComponent)) {
+                candidates.add(indexedActor);
+            }
+        }
+    }
+
+    private static boolean matches(EntityRef actor, Class<? extends Component> requiredComponent) {
+        return requiredComponent == null || actor.hasComponent(requiredComponent);
+    }
+
+    private static int cell(float coordinate) {
+        return (int) Math.floor(coordinate) >> CELL_SHIFT;
+    }
+
+    private static long cellKey(Vector3fc position) {
+        return PackedCoordinates.pack(cell(position.x()), cell(position.y()), cell(position.z()));
+    }
+
+    private static final class IndexedActor {
+        private final EntityRef entity;
+        private final Vector3f position = new Vector3f();
+        private long cell;
+
+        IndexedActor(EntityRef entity) {
+            this.entity = entity;
+        }
+    }
+}
@@ -2,95 +2,300 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.terasology.module.behaviors.systems;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.joml.Vector3f;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.module.behaviors.components.FindNearbyPlayersComponent;
-import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.module.behaviors.events.PlayerEnteredRangeEvent;
+import org.terasology.module.behaviors.events.PlayerLeftRangeEvent;
+import org.terasology.module.behaviors.util.PackedCoordinates;
+import org.terasology.engine.core.Time;
 import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnChangedComponent;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterMode;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
 import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
-import org.terasology.engine.logic.characters.AliveCharacterComponent;
 import org.terasology.engine.logic.location.LocationComponent;
-import org.terasology.engine.network.ClientComponent;
 import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
 
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.NavigableMap;
 
+/**
+ * Keeps the {@link FindNearbyPlayersComponent} of all actors up to date.
+ * <p>
+ * Living player characters, as provided by the {@link PlayerSnapshotSystem}, are put into a uniform grid once per tick. Each actor only
+ * checks the players in the grid cells overlapping its search radius.
+ * <p>
+ * Actors are searched in turns: per tick, only as many actors are visited as needed to get around all of them within the shortest
+ * {@link FindNearbyPlayersComponent#scanInterval}. The cost per tick thus depends on the scan intervals rather than growing with the
+ * number of actors on every tick, and a player entering an actor's search radius is noticed within the actor's scan interval.
+ * <p>
+ * The component of an actor is only saved when the players within its range actually changed. Systems interested in the transitions
+ * can listen for {@link PlayerEnteredRangeEvent} and {@link PlayerLeftRangeEvent} sent to the actor.
+ */
+@Share(FindNearbyPlayersSystem.class)
 @RegisterSystem(RegisterMode.AUTHORITY)
 public class FindNearbyPlayersSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
 
 
     private static final Logger logger = LoggerFactory.getLogger(FindNearbyPlayersSystem.class);
 
+    /** The edge length of a grid cell in blocks, expressed as bit shift. */
+    private static final int CELL_SHIFT = 4;
+
+    /** The lower bound for scan intervals (in seconds), so a zero interval means scanning on every tick. */
+    private static final float MIN_SCAN_INTERVAL = 0.001f;
+
+    @In
+    private PlayerSnapshotSystem playerSnapshotSystem;
+
     @In
-    private EntityManager entityManager;
+    private Time time;
+
+    // indices of living player characters in the player snapshot by grid cell, rebuilt on every tick
+    private final Map<Long, List<Integer>> playersByCell = Maps.newHashMap();
+
+    // reused across queries to collect the players in range
+    private final List<Integer> candidates = Lists.newArrayList();
+
+    // all actors with a FindNearbyPlayersComponent, visited in turns starting after the cursor
+    private final List<ScanEntry> scanOrder = Lists.newArrayList();
+    private final Map<EntityRef, ScanEntry> scanEntries = Maps.newHashMap();
+    private int cursor = -1;
+    // the number of actors per scan interval; the shortest one determines how many actors are visited per tick
+    private final NavigableMap<Float, Integer> scanIntervalCounts = Maps.newTreeMap();
+    // fractional visits carried over to the next tick
+    private float pendingVisits;
+
+    // reused across ticks to look up the actor positions
+    private final Vector3f actorPosition = new Vector3f();
 
     @Override
     public void update(float delta) {
-        Iterable<EntityRef> clients = entityManager.getEntitiesWith(ClientComponent.class);
-        Map<Vector3f, EntityRef> clientLocationMap = new HashMap<>();
-
-        for (EntityRef client : clients) {
-            ClientComponent clientComponent = client.getComponent(ClientComponent.class);
-            EntityRef character = clientComponent.character;
-            AliveCharacterComponent aliveCharacterComponent = character.getComponent(AliveCharacterComponent.class);
-            if (aliveCharacterComponent == null) {
+        indexPlayers();
+        if (scanOrder.isEmpty()) {
+            return;
+        }
+
+        // visit just enough actors to get around all of them within the shortest scan interval
+        float minScanInterval = scanIntervalCounts.firstKey();
+        pendingVisits += scanOrder.size() * delta / Math.max(minScanInterval, MIN_SCAN_INTERVAL);
+        int visits = Math.min((int) pendingVisits, scanOrder.size());
+        pendingVisits = Math.min(pendingVisits - visits, scanOrder.size());
+
+        long now = time.getGameTimeInMs();
+        for (int i = 0; i < visits; i++) {
+            cursor = (cursor + 1) % scanOrder.size();
+            ScanEntry scanEntry = scanOrder.get(cursor);
+            EntityRef entity = scanEntry.entity;
+            FindNearbyPlayersComponent findNearbyPlayersComponent = entity.getComponent(FindNearbyPlayersComponent.class);
+            LocationComponent location = entity.getComponent(LocationComponent.class);
+            if (findNearbyPlayersComponent == null || location == null) {
                 continue;
             }
-            LocationComponent locationComponent = character.getComponent(LocationComponent.class);
-            if (locationComponent == null) {
+            if (scanEntry.lastScan >= 0 && now - scanEntry.lastScan + minScanInterval * 1000 <= scanEntry.scanInterval * 1000) {
+                // this actor is fine with a longer interval than others, and will still be within it on its next turn
                 continue;
             }
-            clientLocationMap.put(locationComponent.getWorldPosition(new Vector3f()), character);
+            scanEntry.lastScan = now;
+            scan(entity, location.getWorldPosition(actorPosition), findNearbyPlayersComponent);
         }
-        Set<Vector3f> locationSet = clientLocationMap.keySet();
+    }
 
-        for (EntityRef entity : entityManager.getEntitiesWith(FindNearbyPlayersComponent.class)) {
-            Vector3f actorPosition = entity.getComponent(LocationComponent.class).getWorldPosition(new Vector3f());
-            FindNearbyPlayersComponent findNearbyPlayersComponent = entity.getComponent(FindNearbyPlayersComponent.class);
-            float maxDistance = findNearbyPlayersComponent.searchRadius;
-            float maxDistanceSquared = maxDistance * maxDistance;
-
-            List<Vector3f> inRange = locationSet.stream()
-                    .filter(loc -> loc.distanceSquared(actorPosition) <= maxDistanceSquared)
-                    .sorted(Comparator.comparingDouble(v3f -> v3f.distanceSquared(actorPosition)))
-                    .collect(Collectors.toList());
-            if (inRange.isEmpty()) {
-                findNearbyPlayersComponent.charactersWithinRange = Collections.emptyList();
-                findNearbyPlayersComponent.closestCharacter = EntityRef.NULL;
-                entity.saveComponent(findNearbyPlayersComponent);
-                continue;
+    @ReceiveEvent(components = FindNearbyPlayersComponent.class)
+    public void onFindNearbyPlayersActivated(OnActivatedComponent event, EntityRef entity, FindNearbyPlayersComponent component) {
+        ScanEntry scanEntry = scanEntries.get(entity);
+        if (scanEntry != null) {
+            setScanInterval(scanEntry, component.scanInterval);
+            return;
+        }
+        scanEntry = new ScanEntry(entity, scanOrder.size(), component.scanInterval);
+        scanEntries.put(entity, scanEntry);
+        scanOrder.add(scanEntry);
+        countScanInterval(scanEntry.scanInterval, 1);
+    }
+
+    @ReceiveEvent(components = FindNearbyPlayersComponent.class)
+    public void onFindNearbyPlayersChanged(OnChangedComponent event, EntityRef entity, FindNearbyPlayersComponent component) {
+        ScanEntry scanEntry = scanEntries.get(entity);
+        if (scanEntry != null) {
+            setScanInterval(scanEntry, component.scanInterval);
+        }
+    }
+
+    @ReceiveEvent(components = FindNearbyPlayersComponent.class)
+    public void onFindNearbyPlayersDeactivated(BeforeDeactivateComponent event, EntityRef entity, FindNearbyPlayersComponent component) {
+        ScanEntry scanEntry = scanEntries.remove(entity);
+        if (scanEntry == null) {
+            return;
+        }
+        countScanInterval(scanEntry.scanInterval, -1);
+
+        // fill the gap with the last actor in the scan order
+        int index = scanEntry.index;
+        ScanEntry last = scanOrder.remove(scanOrder.size() - 1);
+        if (last != scanEntry) {
+            place(last, index);
+        }
+        if (index <= cursor) {
+            // the gap was filled with an actor not visited in this round yet, so it is swapped with the one at the cursor
+            if (cursor < scanOrder.size() && index != cursor) {
+                ScanEntry visited = scanOrder.get(cursor);
+                place(scanOrder.get(index), cursor);
+                place(visited, index);
+            }
+            cursor--;
+        }
+    }
+
+    /**
+     * Update the players within range of a single actor.
+     * <p>
+     * The component is only saved if the players within range or the closest player changed, and players entering or leaving the
+     * search radius are announced with a {@link PlayerEnteredRangeEvent} or {@link PlayerLeftRangeEvent}. Actors without players around
+     * thus cause no events at all.
+     */
+    private void scan(EntityRef entity, Vector3f actorPosition, FindNearbyPlayersComponent findNearbyPlayersComponent) {
+        List<EntityRef> previous = findNearbyPlayersComponent.charactersWithinRange;
+        if (previous == null) {
+            previous = Collections.emptyList();
+        }
+        List<EntityRef> charactersWithinRange = findPlayersInRange(actorPosition, findNearbyPlayersComponent.searchRadius);
+        EntityRef closestCharacter = charactersWithinRange.isEmpty() ? EntityRef.NULL : charactersWithinRange.get(0);
+
+        // both lists hold each player at most once, so this compares them as sets
+        boolean membersChanged = charactersWithinRange.size() != previous.size() || !previous.containsAll(charactersWithinRange);
+        if (!membersChanged && closestCharacter.equals(findNearbyPlayersComponent.closestCharacter)) {
+            return;
+        }
+        findNearbyPlayersComponent.charactersWithinRange = charactersWithinRange;
+        findNearbyPlayersComponent.closestCharacter = closestCharacter;
+        entity.saveComponent(findNearbyPlayersComponent);
+
+        if (membersChanged) {
+            for (EntityRef character : previous) {
+                if (!charactersWithinRange.contains(character)) {
+                    entity.send(new PlayerLeftRangeEvent(character));
+                }
+            }
+            for (EntityRef character : charactersWithinRange) {
+                if (!previous.contains(character)) {
+                    entity.send(new PlayerEnteredRangeEvent(character));
+                }
             }
+        }
+    }
+
+    private void setScanInterval(ScanEntry scanEntry, float scanInterval) {
+        if (scanInterval != scanEntry.scanInterval) {
+            countScanInterval(scanEntry.scanInterval, -1);
+            scanEntry.scanInterval = scanInterval;
+            countScanInterval(scanInterval, 1);
+        }
+    }
 
-            List<EntityRef> charactersWithinRange = inRange.stream().map(clientLocationMap::get).collect(Collectors.toList());
+    private void countScanInterval(float scanInterval, int delta) {
+        scanIntervalCounts.merge(scanInterval, delta, (count, change) -> count + change == 0 ? null : count + change);
+    }
+
+    private void place(ScanEntry scanEntry, int index) {
+        scanOrder.set(index, scanEntry);
+        scanEntry.index = index;
+    }
 
-            if (!isEqual(charactersWithinRange, findNearbyPlayersComponent.charactersWithinRange)) {
-                findNearbyPlayersComponent.charactersWithinRange = charactersWithinRange;
-                findNearbyPlayersComponent.closestCharacter = charactersWithinRange.get(0);
-                entity.saveComponent(findNearbyPlayersComponent);
+    @Override
+    public void shutdown() {
+        playersByCell.clear();
+        scanOrder.clear();
+        scanEntries.clear();
+        scanIntervalCounts.clear();
+        cursor = -1;
+        super.shutdown();
+    }
+
+    /**
+     * Rebuild the grid of living player characters from the current player snapshot.
+     */
+    private void indexPlayers() {
+        playersByCell.clear();
+        for (int i = 0; i < playerSnapshotSystem.size(); i++) {
+            if (!playerSnapshotSystem.isAlive(i)) {
+                continue;
             }
+            long cell = PackedCoordinates.pack(cell(playerSnapshotSystem.getX(i)), cell(playerSnapshotSystem.getY(i)),
+                    cell(playerSnapshotSystem.getZ(i)));
+            playersByCell.computeIfAbsent(cell, k -> Lists.newArrayList()).add(i);
         }
     }
 
-    private boolean isEqual(List<EntityRef> one, List<EntityRef> two) {
-        if ((one == null && two != null) || (one != null && two == null)) {
-            return false;
+    /**
+     * The player characters within {@code radius} of {@code position}, closest first.
+     * <p>
+     * Only the grid cells overlapping the search sphere are visited.
+     */
+    private List<EntityRef> findPlayersInRange(Vector3f position, float radius) {
+        if (playersByCell.isEmpty()) {
+            return Collections.emptyList();
+        }
+        float radiusSquared = radius * radius;
+        candidates.clear();
+        for (int x = cell(position.x - radius); x <= cell(position.x + radius); x++) {
+            for (int y = cell(position.y - radius); y <= cell(position.y + radius); y++) {
+                for (int z = cell(position.z - radius); z <= cell(position.z + radius); z++) {
+                    List<Integer> players = playersByCell.get(PackedCoordinates.pack(x, y, z));
+                    if (players == null) {
+                        continue;
+                    }
+                    for (Integer player : players) {
+                        if (playerSnapshotSystem.distanceSquared(player, position) <= radiusSquared) {
+                            candidates.add(player);
+                        }
+                    }
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
         }
-        if (one.size() != two.size()) {
-            return false;
+        candidates.sort(Comparator.comparingDouble(player -> playerSnapshotSystem.distanceSquared(player, position)));
+        List<EntityRef> result = Lists.newArrayListWithCapacity(candidates.size());
+        for (Integer player : candidates) {
+            result.add(playerSnapshotSystem.getCharacter(player));
+        }
+        candidates.clear();
+        return result;
+    }
+
+    private static int cell(float coordinate) {
+        return (int) Math.floor(coordinate) >> CELL_SHIFT;
+    }
+
+    /**
+     * An actor in the scan order.
+     */
+    private static final class ScanEntry {
+        private final EntityRef entity;
+        /** The position of the actor in the scan order. */
+        private int index;
+        private float scanInterval;
+        /** The game time (in ms) of the last scan, or -1 if the actor was not scanned yet. */
+        private long lastScan = -1;
+
+        ScanEntry(EntityRef entity, int index, float scanInterval) {
+            this.entity = entity;
+            this.index = index;
+            this.scanInterval = scanInterval;
         }
-        final Set<EntityRef> s1 = new HashSet<>(one);
-        final Set<EntityRef> s2 = new HashSet<>(two);
-        return s1.equals(s2);
     }
 }
@@ -0,0 +1,466 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.systems;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.joml.Vector3f;
+import org.joml.Vector3i;
+import org.joml.Vector3ic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.engine.world.OnChangedBlock;
+import org.terasology.engine.world.block.BlockComponent;
+import org.terasology.engine.world.block.Blocks;
+import org.terasology.flexiblepathfinding.plugins.JPSPlugin;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.module.behaviors.plugin.MovementPlugin;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares a single search between all actors moving towards the same entity.
+ * <p>
+ * For every goal entity followed by at least {@link #MIN_FOLLOWERS} actors with the same pathfinding plugin, a flow field is built by
+ * a breadth-first search expanding backwards from the goal's block within {@link #RADIUS} blocks. Each visited block stores the next
+ * block on a shortest path towards the goal, so followers can read their path from the field instead of running their own search.
+ * <p>
+ * The searches are spread over several ticks, sharing a global node budget per tick evenly. When the goal moves to an adjacent block
+ * that is reachable from its previous block, the field is extended by that single step. Once the goal left the core of the field
+ * ({@link #CORE_RADIUS} blocks around the block the search was started from), or after {@link #MAX_GOAL_STEPS} such steps, the search
+ * is started again from the goal's new block in a second field, while followers are still served from the extended one. Once the new
+ * search is complete, the fields are swapped. Both fields are dropped when a block within them changes.
+ * <p>
+ * The fields are stored in plain arrays over the cube of blocks around the block the search was started from. At most
+ * {@link #MAX_GRIDS} of them exist at a time, and they are reused for every new search. Goals beyond that are left to the individual
+ * searches of their followers until a field is free again.
+ * <p>
+ * The shared pathfinding plugins are used by the pathfinder threads at the same time, so each flow field searches with a plugin of its
+ * own (see {@link MovementPlugin#createJpsPlugin(EntityRef)}), which is only ever used on the game thread.
+ */
+@Share(FlowFieldSystem.class)
+@RegisterSystem(RegisterMode.AUTHORITY)
+public class FlowFieldSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+    private static final Logger logger = LoggerFactory.getLogger(FlowFieldSystem.class);
+
+    /** The number of distinct actors that need to follow the same goal before a flow field is built for it. */
+    private static final int MIN_FOLLOWERS = 2;
+    /** The maximum distance (per axis) of blocks in a flow field from the goal the field was built for. */
+    private static final int RADIUS = 24;
+    /** The total number of blocks expanded per tick over all flow fields. */
+    private static final int NODES_PER_TICK = 512;
+    /** The maximum distance (per axis) the goal may move away from the block the search was started from before it is started again. */
+    private static final int CORE_RADIUS = RADIUS / 3;
+    /**
+     * The maximum number of single-block goal moves a field is extended by before the search is started again, which bounds the detour
+     * of paths following the goal's trail.
+     */
+    private static final int MAX_GOAL_STEPS = RADIUS / 2;
+    /** The maximum number of grids over all flow fields; each one takes about 0.9 MB. */
+    private static final int MAX_GRIDS = 12;
+    /** The time (in ms) after which a field without any requests is dropped. */
+    private static final long UNUSED_TIMEOUT = 5000;
+    /** The time (in ms) a requesting actor is counted as follower. */
+    private static final long FOLLOWER_TIMEOUT = 2000;
+
+    @In
+    private Time time;
+
+    private final Map<FieldKey, FlowField> fields = Maps.newHashMap();
+
+    /** Grids not used by any field, kept to reuse their arrays. */
+    private final List<Grid> spareGrids = Lists.newArrayList();
+    /** The number of grids in use or spare. */
+    private int gridCount;
+
+    // the fields with a search in progress, reused across ticks to split the node budget
+    private final List<FlowField> searching = Lists.newArrayList();
+    /** The offset of the search served first in the current tick, so that no search is always served last. */
+    private int rotation;
+
+    // reused across ticks to look up the goal positions
+    private final Vector3f goalPosition = new Vector3f();
+    private final Vector3i goalBlock = new Vector3i();
+
+    /**
+     * Retrieve a path from {@code start} towards the given goal entity from the shared flow field.
+     * <p>
+     * Calling this method registers the requester as follower of the goal. If there are enough followers, a flow field is built over the
+     * next ticks.
+     *
+     * @param requester the actor asking for a path
+     * @param goalEntity the entity to move to; must have a {@link LocationComponent}
+     * @param movementPlugin the movement plugin of the requester
+     * @param start the block the requester is currently in
+     * @param goalTolerance the maximum distance (in blocks) from the goal at which the path may end
+     * @return the path (excluding {@code start}) towards the goal, ending at the first block within {@code goalTolerance} of the goal;
+     *         empty if {@code start} is within {@code goalTolerance} already; {@code null} if the flow field does not cover
+     *         {@code start} (yet)
+     */
+    public List<Vector3i> getPath(EntityRef requester, EntityRef goalEntity, MovementPlugin movementPlugin, Vector3ic start,
+                                  double goalTolerance) {
+        FieldKey key = new FieldKey(goalEntity, movementPlugin.getJpsPlugin(requester));
+        FlowField field = fields.get(key);
+        if (field == null) {
+            field = new FlowField(movementPlugin.createJpsPlugin(requester));
+            fields.put(key, field);
+        }
+        long now = time.getGameTimeInMs();
+        field.lastRequest = now;
+        field.followers.put(requester, now);
+
+        // the complete field is preferred, but a field still being built is good enough for the blocks it covers already
+        Grid grid = field.serving != null ? field.serving : field.building;
+        return grid != null ? grid.extractPath(start, goalTolerance) : null;
+    }
+
+    @Override
+    public void update(float delta) {
+        long now = time.getGameTimeInMs();
+        Iterator<Map.Entry<FieldKey, FlowField>> iterator = fields.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<FieldKey, FlowField> entry = iterator.next();
+            FlowField field = entry.getValue();
+            EntityRef goalEntity = entry.getKey().goalEntity;
+            LocationComponent goalLocation = goalEntity.getComponent(LocationComponent.class);
+            if (now - field.lastRequest > UNUSED_TIMEOUT || goalLocation == null) {
+                field.clear();
+                iterator.remove();
+                continue;
+            }
+            field.followers.values().removeIf(lastSeen -> now - lastSeen > FOLLOWER_TIMEOUT);
+            if (field.followers.size() < MIN_FOLLOWERS) {
+                field.clear();
+                continue;
+            }
+
+            field.moveGoal(Blocks.toBlockPos(goalLocation.getWorldPosition(goalPosition), goalBlock));
+            if (field.building != null) {
+                searching.add(field);
+            }
+        }
+        if (fields.isEmpty()) {
+            spareGrids.clear();
+            gridCount = 0;
+        }
+
+        // split the budget evenly; the share a search does not use is passed on to the searches served after it
+        int count = searching.size();
+        int budget = NODES_PER_TICK;
+        for (int i = 0; i < count; i++) {
+            FlowField field = searching.get((rotation + i) % count);
+            budget -= field.expand(budget / (count - i));
+        }
+        if (count > 0) {
+            rotation = (rotation + 1) % count;
+        }
+        searching.clear();
+    }
+
+    @Override
+    public void shutdown() {
+        fields.clear();
+        spareGrids.clear();
+        gridCount = 0;
+        searching.clear();
+        super.shutdown();
+    }
+
+    @ReceiveEvent(components = BlockComponent.class)
+    public void onBlockChanged(OnChangedBlock event, EntityRef blockEntity) {
+        for (FlowField field : fields.values()) {
+            if (field.covers(event.getBlockPosition())) {
+                logger.debug("Rebuilding flow field due to block change at {}", event.getBlockPosition());
+                field.clear();
+            }
+        }
+    }
+
+    /**
+     * A grid for a new search, or null if all {@link #MAX_GRIDS} grids are in use.
+     */
+    private Grid obtainGrid() {
+        if (!spareGrids.isEmpty()) {
+            return spareGrids.remove(spareGrids.size() - 1);
+        }
+        if (gridCount < MAX_GRIDS) {
+            gridCount++;
+            return new Grid();
+        }
+        return null;
+    }
+
+    private void releaseGrid(Grid grid) {
+        if (grid != null) {
+            spareGrids.add(grid);
+        }
+    }
+
+    /**
+     * The flow fields towards a single goal: the one followers are served from, and the one being searched.
+     */
+    private final class FlowField {
+        /** The pathfinding plugin of this field alone, not shared with the pathfinder threads. */
+        private final JPSPlugin plugin;
+        private final Map<EntityRef, Long> followers = Maps.newHashMap();
+        /** The latest complete field, or null. */
+        private Grid serving;
+        /** The field currently searched, or null. */
+        private Grid building;
+        private long lastRequest;
+
+        FlowField(JPSPlugin plugin) {
+            this.plugin = plugin;
+        }
+
+        void clear() {
+            releaseGrid(serving);
+            releaseGrid(building);
+            serving = null;
+            building = null;
+        }
+
+        boolean covers(Vector3ic pos) {
+            return serving != null && serving.covers(pos) || building != null && building.covers(pos);
+        }
+
+        /**
+         * Update the fields for the goal's current block, and start a new search from it if necessary.
+         */
+        void moveGoal(Vector3ic newGoal) {
+            if (serving != null && !serving.moveGoal(newGoal)) {
+                releaseGrid(serving);
+                serving = null;
+            }
+            if (building != null && !building.moveGoal(newGoal)) {
+                releaseGrid(building);
+                building = null;
+            }
+            if (building == null && (serving == null || serving.isOffCenter())) {
+                building = obtainGrid();
+                if (building != null) {
+                    building.start(plugin, newGoal);
+                }
+            }
+        }
+
+        /**
+         * Expand up to {@code budget} blocks of the search in progress, and serve its result once it is complete.
+         *
+         * @return the number of expanded blocks
+         */
+        int expand(int budget) {
+            if (building == null) {
+                return 0;
+            }
+            int expanded = building.expand(budget);
+            if (building.isComplete()) {
+                releaseGrid(serving);
+                serving = building;
+                building = null;
+            }
+            return expanded;
+        }
+    }
+
+    /**
+     * A breadth-first search expanding backwards from a goal block, stored in arrays over the cube around its start block.
+     */
+    private static final class Grid {
+        private static final int SIZE = 2 * RADIUS + 1;
+        private static final int CELLS = SIZE * SIZE * SIZE;
+        /** Marks blocks not visited by the search. */
+        private static final int UNVISITED = -1;
+        /** Marks the goal block, the end of all paths in this field. */
+        private static final int GOAL = -2;
+
+        private JPSPlugin plugin;
+        /** The index of the next block towards the goal for each block of the cube. */
+        private final int[] next = new int[CELLS];
+        /** The blocks to expand, in the order they were visited; each block is added at most once. */
+        private final int[] queue = new int[CELLS];
+        private int queueHead;
+        private int queueTail;
+        /** The block the search was started from, the center of the cube. */
+        private final Vector3i root = new Vector3i();
+        private final Vector3i goal = new Vector3i();
+        /** The number of single-block moves of the goal since the search was started. */
+        private int goalSteps;
+
+        // reused while expanding
+        private final Vector3i current = new Vector3i();
+        private final Vector3i neighbor = new Vector3i();
+
+        void start(JPSPlugin searchPlugin, Vector3ic newGoal) {
+            Arrays.fill(next, UNVISITED);
+            plugin = searchPlugin;
+            root.set(newGoal);
+            goal.set(newGoal);
+            goalSteps = 0;
+            queueHead = 0;
+            queueTail = 0;
+            int rootIndex = indexOf(root);
+            next[rootIndex] = GOAL;
+            queue[queueTail++] = rootIndex;
+        }
+
+        boolean isComplete() {
+            return queueHead == queueTail;
+        }
+
+        /**
+         * Whether the goal moved too far from the block the search was started from, so that the search should be started again.
+         */
+        boolean isOffCenter() {
+            return goalSteps >= MAX_GOAL_STEPS
+                    || Math.abs(goal.x - root.x) > CORE_RADIUS
+                    || Math.abs(goal.y - root.y) > CORE_RADIUS
+                    || Math.abs(goal.z - root.z) > CORE_RADIUS;
+        }
+
+        boolean covers(Vector3ic pos) {
+            return Math.abs(pos.x() - root.x) <= RADIUS + 2
+                    && Math.abs(pos.y() - root.y) <= RADIUS + 2
+                    && Math.abs(pos.z() - root.z) <= RADIUS + 2;
+        }
+
+        /**
+         * Follow the goal to its current block, extending the field by a single step if necessary.
+         *
+         * @return false if the goal moved somewhere the field cannot be extended to, so that the field has to be dropped
+         */
+        boolean moveGoal(Vector3ic newGoal) {
+            if (goal.equals(newGoal)) {
+                return true;
+            }
+            int newGoalIndex = indexOf(newGoal);
+            if (newGoalIndex == UNVISITED
+                    || Math.abs(goal.x - newGoal.x()) > 1 || Math.abs(goal.y - newGoal.y()) > 1 || Math.abs(goal.z - newGoal.z()) > 1
+                    || !plugin.isReachable(current.set(newGoal), goal)) {
+                return false;
+            }
+            boolean visited = next[newGoalIndex] != UNVISITED;
+            // all paths ended at the old goal, which now leads on to the new one
+            next[indexOf(goal)] = newGoalIndex;
+            next[newGoalIndex] = GOAL;
+            if (!visited) {
+                queue[queueTail++] = newGoalIndex;
+            }
+            goal.set(newGoal);
+            goalSteps++;
+            return true;
+        }
+
+        /**
+         * Expand up to {@code budget} blocks of the breadth-first search.
+         *
+         * @return the number of expanded blocks
+         */
+        int expand(int budget) {
+            int expanded = 0;
+            while (expanded < budget && queueHead < queueTail) {
+                int currentIndex = queue[queueHead++];
+                toPosition(currentIndex, current);
+                expanded++;
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        for (int dz = -1; dz <= 1; dz++) {
+                            if (dx == 0 && dy == 0 && dz == 0) {
+                                continue;
+                            }
+                            int neighborIndex = indexOf(neighbor.set(current.x + dx, current.y + dy, current.z + dz));
+                            // search backwards: the neighbor is added if the actor can move from there to the current block
+                            if (neighborIndex != UNVISITED && next[neighborIndex] == UNVISITED && plugin.isReachable(current, neighbor)) {
+                                next[neighborIndex] = currentIndex;
+                                queue[queueTail++] = neighborIndex;
+                            }
+                        }
+                    }
+                }
+            }
+            return expanded;
+        }
+
+        /**
+         * Follow the field from {@code start} towards the goal.
+         *
+         * @return the blocks to move along (excluding {@code start}) up to the first one within {@code goalTolerance} of the goal, or
+         *         {@code null} if {@code start} is not covered by the field
+         */
+        List<Vector3i> extractPath(Vector3ic start, double goalTolerance) {
+            int index = indexOf(start);
+            if (index == UNVISITED || next[index] == UNVISITED) {
+                return null;
+            }
+            List<Vector3i> path = Lists.newArrayList();
+            if (goal.distance(start) <= goalTolerance) {
+                return path;
+            }
+            while (next[index] != GOAL) {
+                index = next[index];
+                Vector3i waypoint = toPosition(index, new Vector3i());
+                path.add(waypoint);
+                if (goal.distance(waypoint) <= goalTolerance || path.size() > CELLS) {
+                    break;
+                }
+            }
+            return path;
+        }
+
+        /**
+         * The index of the given block in the arrays, or {@link #UNVISITED} if it lies outside the cube.
+         */
+        private int indexOf(Vector3ic pos) {
+            int x = pos.x() - root.x + RADIUS;
+            int y = pos.y() - root.y + RADIUS;
+            int z = pos.z() - root.z + RADIUS;
+            if (x < 0 || x >= SIZE || y < 0 || y >= SIZE || z < 0 || z >= SIZE) {
+                return UNVISITED;
+            }
+            return (x * SIZE + y) * SIZE + z;
+        }
+
+        private Vector3i toPosition(int index, Vector3i dest) {
+            return dest.set(index / (SIZE * SIZE) + root.x - RADIUS, index / SIZE % SIZE + root.y - RADIUS, index % SIZE + root.z - RADIUS);
+        }
+    }
+
+    private static final class FieldKey {
+        private final EntityRef goalEntity;
+        private final JPSPlugin plugin;
+
+        FieldKey(EntityRef goalEntity, JPSPlugin plugin) {
+            this.goalEntity = goalEntity;
+            this.plugin = plugin;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FieldKey that = (FieldKey) o;
+            return goalEntity.equals(that.goalEntity) && plugin == that.plugin;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * goalEntity.hashCode() + System.identityHashCode(plugin);
+        }
+    }
+}
@@ -2,10 +2,13 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.terasology.module.behaviors.systems;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.joml.Vector3f;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterMode;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
@@ -15,25 +18,63 @@ import org.terasology.engine.logic.characters.events.HorizontalCollisionEvent;
 import org.terasology.engine.registry.Share;
 import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
 import org.terasology.module.behaviors.components.MinionMoveComponent;
+import org.terasology.module.health.components.HealthComponent;
 
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 
 
+/**
+ * Dispatches the movement input of all actors moved by behaviors.
+ * <p>
+ * Behavior nodes do not send {@link CharacterMoveInputEvent}s directly, but write their movement wishes into the actor's
+ * {@link Steering} (see {@link #getSteering(EntityRef)}). Once per tick, the wishes of every actor are combined into a single input, so
+ * actors that look and move at the same time do not run the character physics twice. The inputs are sent in the order of the entity
+ * ids; inputs of destroyed or dead entities are dropped.
+ * <p>
+ * The steering of an actor is kept by this system rather than on the entity, as it is scratch state of the current tick. It is reused
+ * across ticks and dropped when the actor is deactivated.
+ */
 @Share(MinionMoveSystem.class)
 @RegisterSystem(RegisterMode.AUTHORITY)
 public class MinionMoveSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
     private static final Logger logger = LoggerFactory.getLogger(MinionMoveSystem.class);
 
-    private final Map<EntityRef, CharacterMoveInputEvent> eventQueue = Maps.newHashMap();
+    private static final Comparator<EntityRef> BY_ID = Comparator.comparingLong(EntityRef::getId);
+
+    private final Map<EntityRef, Steering> steerings = Maps.newHashMap();
+
+    // all entities with a steering, sorted by id; entities are inserted once, so that dispatching neither sorts nor copies
+    private final List<EntityRef> dispatchOrder = Lists.newArrayList();
 
     @Override
     public void update(float delta) {
-        for (Map.Entry<EntityRef, CharacterMoveInputEvent> entry : eventQueue.entrySet()) {
-            if (entry.getKey() != null && entry.getKey().exists()) {
-                entry.getKey().send(entry.getValue());
+        for (int i = 0; i < dispatchOrder.size(); i++) {
+            EntityRef entity = dispatchOrder.get(i);
+            if (!entity.exists()) {
+                steerings.remove(entity);
+                dispatchOrder.remove(i--);
+                continue;
+            }
+            Steering steering = steerings.get(entity);
+            if (steering.isSet() && isAlive(entity)) {
+                long deltaMs = steering.delta > 0 ? steering.delta : (long) (delta * 1000);
+                // the only allocation per actor and tick: the event is handed to the character movement, which may keep it, so
+                // neither the event nor its direction can be reused
+                send(entity, new CharacterMoveInputEvent(steering.sequenceNumber, steering.getPitch(), steering.getYaw(),
+                        new Vector3f(steering.drive), false, false, steering.jump, deltaMs));
             }
+            steering.clear();
         }
-        eventQueue.clear();
+    }
+
+    @Override
+    public void shutdown() {
+        steerings.clear();
+        dispatchOrder.clear();
+        super.shutdown();
     }
 
     @ReceiveEvent
@@ -46,7 +87,67 @@ public class MinionMoveSystem extends BaseComponentSystem implements UpdateSubsc
         minionMoveComponent.collidedHorizontally = true;
     }
 
+    @ReceiveEvent(components = MinionMoveComponent.class)
+    public void onMinionMoveDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        if (steerings.remove(entity) != null) {
+            int index = Collections.binarySearch(dispatchOrder, entity, BY_ID);
+            if (index < 0 || !dispatchOrder.get(index).equals(entity)) {
+                // destroyed entities may have lost their id, so the order is not guaranteed
+                index = dispatchOrder.indexOf(entity);
+            }
+            if (index >= 0) {
+                dispatchOrder.remove(index);
+            }
+        }
+    }
+
+    /**
+     * The steering wishes of the given entity in the current tick, to be modified by behavior nodes.
+     * <p>
+     * Changes do not need to be saved, they are picked up at the end of the tick. The returned steering must not be kept beyond the
+     * current tick.
+     *
+     * @param entity the entity to steer
+     * @return the steering of the entity
+     */
+    public Steering getSteering(EntityRef entity) {
+        Steering steering = steerings.get(entity);
+        if (steering == null) {
+            steering = new Steering();
+            steerings.put(entity, steering);
+            int index = Collections.binarySearch(dispatchOrder, entity, BY_ID);
+            dispatchOrder.add(index < 0 ? -index - 1 : index, entity);
+        }
+        return steering;
+    }
+
+    /**
+     * Move the given entity as described by the given input, e.g., as computed by a movement plugin.
+     * <p>
+     * The input is merged with all other steering wishes of the entity in the current tick.
+     *
+     * @param entity the entity to move
+     * @param event the movement input
+     */
     public void enqueue(EntityRef entity, CharacterMoveInputEvent event) {
-        eventQueue.put(entity, event);
+        if (entity == null || entity == EntityRef.NULL) {
+            return;
+        }
+        getSteering(entity).move(event);
+    }
+
+    /**
+     * Hand the combined movement input of the current tick to the character movement of the given entity.
+     */
+    protected void send(EntityRef entity, CharacterMoveInputEvent input) {
+        entity.send(input);
+    }
+
+    private static boolean isAlive(EntityRef entity) {
+        if (!entity.exists()) {
+            return false;
+        }
+        HealthComponent health = entity.getComponent(HealthComponent.class);
+        return health == null || health.currentHealth > 0;
     }
 }
@@ -0,0 +1,424 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.systems;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.joml.Vector3i;
+import org.joml.Vector3ic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.engine.world.OnChangedBlock;
+import org.terasology.engine.world.block.BlockComponent;
+import org.terasology.flexiblepathfinding.JPSConfig;
+import org.terasology.flexiblepathfinding.PathfinderCallback;
+import org.terasology.flexiblepathfinding.plugins.JPSPlugin;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Sits in front of the {@link PathSchedulerSystem} and shares path search results between actors.
+ * <p>
+ * Successful searches are kept in a least-recently-used cache keyed by start block, goal block, goal tolerance, and the pathfinding
+ * plugin used for the search. As pathfinding plugins are shared between actors with the same movement profile (see
+ * {@link PluginSystem}), actors of the same kind asking for the same path are served from the cache. Identical requests issued while a
+ * search is still running join the pending search instead of starting a new one.
+ * <p>
+ * Cached paths are evicted as soon as a block on or right next to them changes. Results of searches that were running while a block
+ * between their start and goal changed are handed to the waiting callbacks, but neither cached nor remembered as failure.
+ * <p>
+ * Failed searches are remembered as well, with start and goal reduced to coarse regions. Further requests between the same regions
+ * fail right away until a block between the regions changes or a backoff time expires. The backoff time doubles with every failure,
+ * so actors repeatedly trying to reach an unreachable goal (e.g., a player on a pillar) do not run full searches over and over again.
+ * Searches the pathfinder did not accept are handed to the waiting callbacks without a path, but not remembered as failure, as they
+ * were never run.
+ * <p>
+ * All callbacks are called on the game thread: results of finished searches are queued and delivered once per tick.
+ */
+@Share(PathCacheSystem.class)
+@RegisterSystem(RegisterMode.AUTHORITY)
+public class PathCacheSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+    private static final Logger logger = LoggerFactory.getLogger(PathCacheSystem.class);
+
+    /** The maximum number of paths kept in the cache. */
+    private static final int MAX_CACHED_PATHS = 256;
+
+    /** The id returned for requests that were served from the cache or joined a pending search. */
+    private static final int SHARED_REQUEST_ID = 0;
+
+    /** The edge length of the regions failed searches are remembered for, expressed as bit shift. */
+    private static final int REGION_SHIFT = 2;
+    /**
+     * The margin (in blocks) around start and goal in which a block change clears a remembered failure, or keeps the result of a running
+     * search out of the cache.
+     */
+    private static final int FAILURE_MARGIN = 8;
+    private static final long MIN_BACKOFF = 1000;
+    private static final long MAX_BACKOFF = 30000;
+
+    @In
+    private PathSchedulerSystem pathSchedulerSystem;
+
+    @In
+    private Time time;
+
+    private final Map<PathKey, CachedPath> cache = new LinkedHashMap<PathKey, CachedPath>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PathKey, CachedPath> eldest) {
+            return size() > MAX_CACHED_PATHS;
+        }
+    };
+
+    private final Map<PathKey, PendingSearch> pending = Maps.newHashMap();
+
+    private final Map<PathKey, Failure> failures = Maps.newHashMap();
+
+    /** The number of block changes seen so far, used to tell whether a block changed while a search was running. */
+    private long blockChangeGeneration;
+
+    /** Search results handed over from the pathfinder threads. */
+    private final Queue<Completion> completions = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Request a path for the given configuration, served from the cache if possible.
+     * <p>
+     * The callback receives its own copy of the path and may modify it. If the path is cached, the callback is called before this
+     * method returns. Otherwise, the search is queued with the given priority.
+     *
+     * @param config the pathfinding configuration; {@link JPSConfig#plugin} must be set
+     * @param priority the importance of the search if it has to be run
+     * @param callback called with the path once it is available, or with {@code null} if no path was found or the pathfinder did not
+     *         accept the search
+     * @return -1 if the request was rejected, a non-negative number otherwise
+     */
+    public int requestPath(JPSConfig config, PathSchedulerSystem.Priority priority, PathfinderCallback callback) {
+        PathKey key = new PathKey(config.start, config.stop, config.goalDistance, config.maxDepth, config.plugin);
+
+        Failure failure = failures.get(key.toRegionKey());
+        if (failure != null && failure.isBlocking(time.getGameTimeInMs())) {
+            logger.debug("... skipping search {} -> {} after recent failure", key.start, key.goal);
+            callback.pathReady(null, null);
+            return SHARED_REQUEST_ID;
+        }
+
+        CachedPath cachedPath = cache.get(key);
+        if (cachedPath != null) {
+            logger.debug("... serving cached path {} -> {}", key.start, key.goal);
+            Vector3i target = cachedPath.target != null ? new Vector3i(cachedPath.target) : null;
+            callback.pathReady(copy(cachedPath.path), target);
+            return SHARED_REQUEST_ID;
+        }
+
+        PendingSearch search = pending.get(key);
+        if (search != null) {
+            search.callbacks.add(callback);
+            return SHARED_REQUEST_ID;
+        }
+        PendingSearch newSearch = new PendingSearch(key, callback, blockChangeGeneration);
+        pending.put(key, newSearch);
+        // the pathfinder calls back on its worker thread, the result is handed over to the game thread in #update
+        newSearch.schedulerId = pathSchedulerSystem.schedule(config, priority,
+                (path, target) -> completions.add(new Completion(key, path, target)),
+                () -> onRejected(key, newSearch));
+        return newSearch.schedulerId;
+    }
+
+    /**
+     * Withdraw interest in a requested path.
+     * <p>
+     * The callback will not be called anymore. If no other request is waiting for the same search, the search is removed from the
+     * {@link PathSchedulerSystem} unless it is already running.
+     *
+     * @param config the configuration the path was requested with
+     * @param callback the callback the path was requested with
+     */
+    public void cancel(JPSConfig config, PathfinderCallback callback) {
+        PathKey key = new PathKey(config.start, config.stop, config.goalDistance, config.maxDepth, config.plugin);
+        PendingSearch search = pending.get(key);
+        if (search == null || !search.callbacks.remove(callback)) {
+            return;
+        }
+        // a search already handed to the pathfinder stays pending, so that its result still ends up in the cache
+        if (search.callbacks.isEmpty() && pathSchedulerSystem.cancel(search.schedulerId)) {
+            logger.debug("... cancelled search {} -> {}", key.start, key.goal);
+            pending.remove(key);
+        }
+    }
+
+    /**
+     * Deliver the results of all searches completed since the last tick.
+     * <p>
+     * Paths are applied on the game thread only, so that callbacks may safely modify and save components. As all results are delivered
+     * at the same point of the tick, the resulting component changes are batched instead of being spread across the frame.
+     */
+    @Override
+    public void update(float delta) {
+        Completion completion;
+        while ((completion = completions.poll()) != null) {
+            onPathReady(completion.key, completion.path, completion.target);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        completions.clear();
+        pending.clear();
+        cache.clear();
+        failures.clear();
+        super.shutdown();
+    }
+
+    @ReceiveEvent(components = BlockComponent.class)
+    public void onBlockChanged(OnChangedBlock event, EntityRef blockEntity) {
+        Vector3ic pos = event.getBlockPosition();
+        blockChangeGeneration++;
+        for (PendingSearch search : pending.values()) {
+            if (search.isAffectedBy(pos)) {
+                search.lastBlockChange = blockChangeGeneration;
+            }
+        }
+        Iterator<CachedPath> iterator = cache.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isAffectedBy(pos)) {
+                iterator.remove();
+            }
+        }
+        failures.values().removeIf(failure -> failure.isAffectedBy(pos));
+    }
+
+    private void onPathReady(PathKey key, List<Vector3i> path, Vector3i target) {
+        PendingSearch search = pending.remove(key);
+        if (search == null) {
+            return;
+        }
+
+        // the search may have looked at blocks as they were before the change, so its result is only good for the waiting actors
+        if (search.isOutdated()) {
+            logger.debug("... not caching search {} -> {}, blocks changed while it was running", key.start, key.goal);
+        } else if (path != null && !path.isEmpty()) {
+            cache.put(key, new CachedPath(path, target));
+            failures.remove(key.toRegionKey());
+        } else {
+            long now = time.getGameTimeInMs();
+            failures.values().removeIf(failure -> failure.isExpired(now));
+            failures.computeIfAbsent(key.toRegionKey(), k -> new Failure(k)).record(now);
+        }
+
+        for (PathfinderCallback callback : search.callbacks) {
+            callback.pathReady(path != null ? copy(path) : null, target);
+        }
+    }
+
+    /**
+     * Release the actors waiting for a search the pathfinder did not accept.
+     * <p>
+     * The search was never run, so the path may well exist: nothing is remembered as failure, and the next request starts a new search.
+     */
+    private void onRejected(PathKey key, PendingSearch search) {
+        if (pending.get(key) != search) {
+            return;
+        }
+        pending.remove(key);
+        logger.debug("... search {} -> {} was rejected by the pathfinder", key.start, key.goal);
+        for (PathfinderCallback callback : search.callbacks) {
+            callback.pathReady(null, null);
+        }
+    }
+
+    private static List<Vector3i> copy(List<Vector3i> path) {
+        List<Vector3i> result = Lists.newArrayListWithCapacity(path.size());
+        for (Vector3i pos : path) {
+            result.add(new Vector3i(pos));
+        }
+        return result;
+    }
+
+    private static final class PathKey {
+        private final Vector3i start;
+        private final Vector3i goal;
+        private final double goalTolerance;
+        // a search with a lower depth limit may fail where a deeper one succeeds
+        private final double maxDepth;
+        private final JPSPlugin plugin;
+
+        PathKey(Vector3ic start, Vector3ic goal, double goalTolerance, double maxDepth, JPSPlugin plugin) {
+            this.start = new Vector3i(start);
+            this.goal = new Vector3i(goal);
+            this.goalTolerance = goalTolerance;
+            this.maxDepth = maxDepth;
+            this.plugin = plugin;
+        }
+
+        /**
+         * The key of the coarse regions containing start and goal, used to remember failed searches.
+         */
+        PathKey toRegionKey() {
+            return new PathKey(
+                    new Vector3i(start.x >> REGION_SHIFT, start.y >> REGION_SHIFT, start.z >> REGION_SHIFT),
+                    new Vector3i(goal.x >> REGION_SHIFT, goal.y >> REGION_SHIFT, goal.z >> REGION_SHIFT),
+                    goalTolerance, maxDepth, plugin);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            PathKey that = (PathKey) o;
+            return Double.compare(that.goalTolerance, goalTolerance) == 0
+                    && Double.compare(that.maxDepth, maxDepth) == 0
+                    && start.equals(that.start)
+                    && goal.equals(that.goal)
+                    && plugin == that.plugin;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = start.hashCode();
+            result = 31 * result + goal.hashCode();
+            result = 31 * result + Double.hashCode(goalTolerance);
+            result = 31 * result + Double.hashCode(maxDepth);
+            return 31 * result + System.identityHashCode(plugin);
+        }
+    }
+
+    private static final class Completion {
+        private final PathKey key;
+        private final List<Vector3i> path;
+        private final Vector3i target;
+
+        Completion(PathKey key, List<Vector3i> path, Vector3i target) {
+            this.key = key;
+            this.path = path;
+            this.target = target;
+        }
+    }
+
+    private static final class PendingSearch {
+        private final List<PathfinderCallback> callbacks;
+        private int schedulerId = -1;
+        // the block change generation when the search was requested, and of the last change in its region since then
+        private final long startGeneration;
+        private long lastBlockChange;
+        // the blocks in which a change makes the result of the search outdated
+        private final Vector3i min = new Vector3i();
+        private final Vector3i max = new Vector3i();
+
+        PendingSearch(PathKey key, PathfinderCallback callback, long generation) {
+            this.callbacks = Lists.newArrayList(callback);
+            this.startGeneration = generation;
+            this.lastBlockChange = generation;
+            min.set(key.start).min(key.goal).sub(FAILURE_MARGIN, FAILURE_MARGIN, FAILURE_MARGIN);
+            max.set(key.start).max(key.goal).add(FAILURE_MARGIN, FAILURE_MARGIN, FAILURE_MARGIN);
+        }
+
+        boolean isOutdated() {
+            return lastBlockChange != startGeneration;
+        }
+
+        boolean isAffectedBy(Vector3ic pos) {
+            return pos.x() >= min.x && pos.x() <= max.x
+                    && pos.y() >= min.y && pos.y() <= max.y
+                    && pos.z() >= min.z && pos.z() <= max.z;
+        }
+    }
+
+    private static final class CachedPath {
+        private final List<Vector3i> path;
+        private final Vector3i target;
+        // bounds of the path, used to quickly reject block changes far away
+        private final Vector3i min = new Vector3i(Integer.MAX_VALUE);
+        private final Vector3i max = new Vector3i(Integer.MIN_VALUE);
+
+        CachedPath(List<Vector3i> path, Vector3i target) {
+            this.path = copy(path);
+            for (Vector3i pos : this.path) {
+                min.min(pos);
+                max.max(pos);
+            }
+            this.target = target != null ? new Vector3i(target) : null;
+        }
+
+        /**
+         * Whether a change to the block at {@code pos} can affect the walkability of this path, i.e., whether the block is on the path,
+         * the ground right below it, or the space the character needs above it.
+         */
+        boolean isAffectedBy(Vector3ic pos) {
+            if (!isNear(pos, min, max)) {
+                return false;
+            }
+            for (Vector3i waypoint : path) {
+                if (isNear(pos, waypoint, waypoint)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isNear(Vector3ic pos, Vector3ic min, Vector3ic max) {
+            return pos.x() >= min.x() - 1 && pos.x() <= max.x() + 1
+                    && pos.y() >= min.y() - 1 && pos.y() <= max.y() + 2
+                    && pos.z() >= min.z() - 1 && pos.z() <= max.z() + 1;
+        }
+    }
+
+    /**
+     * A recently failed search between two regions.
+     */
+    private static final class Failure {
+        // the blocks in which a change clears this failure
+        private final Vector3i min = new Vector3i();
+        private final Vector3i max = new Vector3i();
+        private int count;
+        private long blockedUntil;
+
+        Failure(PathKey regionKey) {
+            min.set(Math.min(regionKey.start.x, regionKey.goal.x), Math.min(regionKey.start.y, regionKey.goal.y),
+                    Math.min(regionKey.start.z, regionKey.goal.z)).mul(1 << REGION_SHIFT).sub(FAILURE_MARGIN, FAILURE_MARGIN,
+                    FAILURE_MARGIN);
+            max.set(Math.max(regionKey.start.x, regionKey.goal.x) + 1, Math.max(regionKey.start.y, regionKey.goal.y) + 1,
+                    Math.max(regionKey.start.z, regionKey.goal.z) + 1).mul(1 << REGION_SHIFT).add(FAILURE_MARGIN, FAILURE_MARGIN,
+                    FAILURE_MARGIN);
+        }
+
+        void record(long now) {
+            long backoff = Math.min(MAX_BACKOFF, MIN_BACKOFF << Math.min(count, 16));
+            count++;
+            blockedUntil = now + backoff;
+        }
+
+        boolean isBlocking(long now) {
+            return now < blockedUntil;
+        }
+
+        /**
+         * Whether the failure can be forgotten entirely, resetting the backoff.
+         */
+        boolean isExpired(long now) {
+            return now > blockedUntil + MAX_BACKOFF;
+        }
+
+        boolean isAffectedBy(Vector3ic pos) {
+            return pos.x() >= min.x && pos.x() < max.x
+                    && pos.y() >= min.y && pos.y() < max.y
+                    && pos.z() >= min.z && pos.z() < max.z;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.systems;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.joml.Vector3i;
+import org.joml.Vector3ic;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnChangedComponent;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.registry.Share;
+import org.terasology.engine.world.OnChangedBlock;
+import org.terasology.engine.world.block.BlockComponent;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.module.behaviors.components.MinionMoveComponent;
+import org.terasology.module.behaviors.util.PackedCoordinates;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps a reverse index from world cells to the actors whose current path crosses them.
+ * <p>
+ * When a block changes, only the actors with a path through the affected cells are flagged as possibly invalid. Path validation (see
+ * {@link org.terasology.module.behaviors.actions.ValidatePath}) can skip checking the waypoints of all actors that are not flagged.
+ * <p>
+ * A new or replaced path starts out flagged, as blocks may have changed while it was searched. Once it was checked and marked as
+ * validated, it stays unflagged until a block along it changes.
+ * <p>
+ * The index is coarse: a flagged actor's path is not necessarily broken, it just has to be checked.
+ */
+@Share(PathInvalidationSystem.class)
+@RegisterSystem(RegisterMode.AUTHORITY)
+public class PathInvalidationSystem extends BaseComponentSystem {
+
+    /** The edge length of a cell in blocks, expressed as bit shift. */
+    private static final int CELL_SHIFT = 3;
+
+    private final Map<Long, Set<EntityRef>> actorsByCell = Maps.newHashMap();
+    private final Map<EntityRef, IndexedPath> indexedPaths = Maps.newHashMap();
+    private final Set<EntityRef> invalidated = Sets.newHashSet();
+
+    @Override
+    public void shutdown() {
+        actorsByCell.clear();
+        indexedPaths.clear();
+        invalidated.clear();
+        super.shutdown();
+    }
+
+    /**
+     * Whether the path of the given entity needs to be checked for walkability.
+     * <p>
+     * This is the case if the path was not validated since it was set, if a block along the path changed since it was last validated,
+     * or if the path is not known to this system.
+     */
+    public boolean isPathInvalidated(EntityRef entity) {
+        return invalidated.contains(entity) || !indexedPaths.containsKey(entity);
+    }
+
+    /**
+     * Mark the path of the given entity as valid after it was checked.
+     */
+    public void markValidated(EntityRef entity) {
+        invalidated.remove(entity);
+    }
+
+    @ReceiveEvent(components = MinionMoveComponent.class)
+    public void onMinionMoveActivated(OnActivatedComponent event, EntityRef entity, MinionMoveComponent minionMoveComponent) {
+        index(entity, minionMoveComponent);
+    }
+
+    @ReceiveEvent(components = MinionMoveComponent.class)
+    public void onMinionMoveChanged(OnChangedComponent event, EntityRef entity, MinionMoveComponent minionMoveComponent) {
+        IndexedPath indexedPath = indexedPaths.get(entity);
+        if (indexedPath == null || indexedPath.version != minionMoveComponent.getPathVersion()) {
+            index(entity, minionMoveComponent);
+        }
+    }
+
+    @ReceiveEvent(components = MinionMoveComponent.class)
+    public void onMinionMoveDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        remove(entity);
+    }
+
+    @ReceiveEvent(components = BlockComponent.class)
+    public void onBlockChanged(OnChangedBlock event, EntityRef blockEntity) {
+        Vector3ic pos = event.getBlockPosition();
+        // a waypoint is affected by the changed block if the block is right next to it, below it, or in the space above it
+        int minX = (pos.x() - 1) >> CELL_SHIFT;
+        int minY = (pos.y() - 2) >> CELL_SHIFT;
+        int minZ = (pos.z() - 1) >> CELL_SHIFT;
+        int maxX = (pos.x() + 1) >> CELL_SHIFT;
+        int maxY = (pos.y() + 1) >> CELL_SHIFT;
+        int maxZ = (pos.z() + 1) >> CELL_SHIFT;
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    Set<EntityRef> actors = actorsByCell.get(PackedCoordinates.pack(x, y, z));
+                    if (actors != null) {
+                        invalidated.addAll(actors);
+                    }
+                }
+            }
+        }
+    }
+
+    private void index(EntityRef entity, MinionMoveComponent minionMoveComponent) {
+        remove(entity);
+        IndexedPath indexedPath = new IndexedPath(minionMoveComponent.getPathVersion());
+        Vector3i previous = new Vector3i();
+        Vector3i waypoint = new Vector3i();
+        for (int i = 0; i < minionMoveComponent.getPathLength(); i++) {
+            minionMoveComponent.getWaypoint(i, waypoint);
+            if (i == 0) {
+                previous.set(waypoint);
+            }
+            // waypoints may be several blocks apart (see simplify_path), so index all cells spanned by the segment
+            for (int x = Math.min(previous.x, waypoint.x) >> CELL_SHIFT; x <= Math.max(previous.x, waypoint.x) >> CELL_SHIFT; x++) {
+                for (int y = Math.min(previous.y, waypoint.y) >> CELL_SHIFT; y <= Math.max(previous.y, waypoint.y) >> CELL_SHIFT; y++) {
+                    for (int z = Math.min(previous.z, waypoint.z) >> CELL_SHIFT; z <= Math.max(previous.z, waypoint.z) >> CELL_SHIFT; z++) {
+                        long key = PackedCoordinates.pack(x, y, z);
+                        if (indexedPath.cells.add(key)) {
+                            actorsByCell.computeIfAbsent(key, k -> Sets.newHashSet()).add(entity);
+                        }
+                    }
+                }
+            }
+            previous.set(waypoint);
+        }
+        indexedPaths.put(entity, indexedPath);
+        // the path has not been checked against the blocks changed while it was searched or repaired
+        invalidated.add(entity);
+    }
+
+    private void remove(EntityRef entity) {
+        invalidated.remove(entity);
+        IndexedPath indexedPath = indexedPaths.remove(entity);
+        if (indexedPath == null) {
+            return;
+        }
+        for (Long key : indexedPath.cells) {
+            Set<EntityRef> actors = actorsByCell.get(key);
+            if (actors != null) {
+                actors.remove(entity);
+                if (actors.isEmpty()) {
+                    actorsByCell.remove(key);
+                }
+            }
+        }
+    }
+
+    private static final class IndexedPath {
+        private final int version;
+        private final Set<Long> cells = Sets.newHashSet();
+
+        IndexedPath(int version) {
+            this.version = version;
+        }
+    }
+}
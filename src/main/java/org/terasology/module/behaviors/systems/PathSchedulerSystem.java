@@ -0,0 +1,240 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.systems;
+
+import com.google.common.collect.Lists;
+import org.joml.Vector3f;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.logic.console.commandSystem.annotations.Command;
+import org.terasology.engine.logic.console.commandSystem.annotations.CommandParam;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.logic.permission.PermissionManager;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.flexiblepathfinding.JPSConfig;
+import org.terasology.flexiblepathfinding.PathfinderCallback;
+import org.terasology.flexiblepathfinding.PathfinderSystem;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Queues path search requests and hands them to the {@link PathfinderSystem} with a limited number of searches per tick.
+ * <p>
+ * Pending requests are ranked by their urgency, which is made up of
+ * <ul>
+ *     <li>the {@link Priority} of the request, e.g., pursuing an entity is more important than idle straying,</li>
+ *     <li>the distance of the requesting actor to the nearest player when the request was made, as actors close to players are more
+ *     noticeable, and</li>
+ *     <li>the time the request is already waiting, so that low priority requests eventually get their turn.</li>
+ * </ul>
+ * All requests age at the same rate, so the order of queued requests does not change over time. The queue is therefore ordered by the
+ * urgency a request would have had at time zero, and the waiting time only matters when requests are taken from it.
+ * <p>
+ * The number of searches per tick and the aging rate can be changed with the {@code pathSearchBudget} and {@code pathSearchAging}
+ * console commands.
+ */
+@Share(PathSchedulerSystem.class)
+@RegisterSystem(RegisterMode.AUTHORITY)
+public class PathSchedulerSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+    private static final Logger logger = LoggerFactory.getLogger(PathSchedulerSystem.class);
+
+    /** The distance to the nearest player (in blocks) above which all actors are considered equally far away. */
+    private static final float MAX_RANKED_DISTANCE = 64f;
+
+    /** Most urgent first, in order of scheduling for equal urgency. */
+    private static final Comparator<Request> BY_URGENCY = (a, b) -> a.rank != b.rank ? Double.compare(b.rank, a.rank)
+            : Integer.compare(a.id, b.id);
+
+    /**
+     * The importance of a path request.
+     * <p>
+     * The weight is expressed in blocks, i.e., a request with a weight higher by 10 is preferred over a request from an actor 10 blocks
+     * closer to a player.
+     */
+    public enum Priority {
+        /** Idle movement, e.g., straying around. */
+        IDLE(0),
+        /** Moving towards an entity, e.g., following or attacking. */
+        PURSUIT(20),
+        /** Small searches to repair an existing path. */
+        REPAIR(30);
+
+        private final float weight;
+
+        Priority(float weight) {
+            this.weight = weight;
+        }
+    }
+
+    @In
+    private PathfinderSystem pathfinderSystem;
+
+    @In
+    private PlayerSnapshotSystem playerSnapshotSystem;
+
+    @In
+    private Time time;
+
+    /** The maximum number of searches started per tick. */
+    private int searchBudget = 8;
+
+    /** The urgency (in blocks) a request gains per second of waiting. */
+    private float agingPerSecond = 10f;
+
+    private final PriorityQueue<Request> queue = new PriorityQueue<>(BY_URGENCY);
+    private int nextId = 1;
+
+    // reused to look up the position of requesting actors
+    private final Vector3f position = new Vector3f();
+
+    /**
+     * Queue a path search request.
+     *
+     * @param config the pathfinding configuration
+     * @param priority the importance of the request
+     * @param callback called with the result of the search
+     * @param onRejected called on the game thread instead of {@code callback} if the pathfinder did not accept the search, i.e., the
+     *         search was never run
+     * @return the id of the queued request
+     */
+    public int schedule(JPSConfig config, Priority priority, PathfinderCallback callback, Runnable onRejected) {
+        float urgency = priority.weight - distanceToNearestPlayer(config.requester);
+        Request request = new Request(nextId++, config, callback, onRejected, urgency, time.getGameTimeInMs());
+        request.rank = rank(request);
+        queue.add(request);
+        return request.id;
+    }
+
+    /**
+     * Remove a queued request, e.g., because nobody is interested in the result anymore.
+     * <p>
+     * Requests already handed to the pathfinder cannot be cancelled; their callback is still called.
+     *
+     * @param id the id returned by {@link #schedule(JPSConfig, Priority, PathfinderCallback, Runnable)}
+     * @return true if the request was still queued and has been removed, false otherwise
+     */
+    public boolean cancel(int id) {
+        return queue.removeIf(request -> request.id == id);
+    }
+
+    public int getSearchBudget() {
+        return searchBudget;
+    }
+
+    /**
+     * @param searchBudget the maximum number of searches started per tick; must be positive
+     */
+    public void setSearchBudget(int searchBudget) {
+        if (searchBudget <= 0) {
+            throw new IllegalArgumentException("The search budget must be positive, but was " + searchBudget);
+        }
+        this.searchBudget = searchBudget;
+    }
+
+    public float getAgingPerSecond() {
+        return agingPerSecond;
+    }
+
+    /**
+     * @param agingPerSecond the urgency (in blocks) a request gains per second of waiting; must not be negative
+     */
+    public void setAgingPerSecond(float agingPerSecond) {
+        if (!(agingPerSecond >= 0)) {
+            throw new IllegalArgumentException("The aging rate must not be negative, but was " + agingPerSecond);
+        }
+        this.agingPerSecond = agingPerSecond;
+        // the rank of queued requests depends on the aging rate
+        List<Request> requests = Lists.newArrayList(queue);
+        queue.clear();
+        for (Request request : requests) {
+            request.rank = rank(request);
+        }
+        queue.addAll(requests);
+    }
+
+    @Command(shortDescription = "Set the maximum number of path searches started per tick", runOnServer = true,
+            requiredPermission = PermissionManager.CHEAT_PERMISSION)
+    public String pathSearchBudget(@CommandParam("budget") int budget) {
+        setSearchBudget(budget);
+        return "Starting up to " + budget + " path searches per tick";
+    }
+
+    @Command(shortDescription = "Set the urgency (in blocks) path requests gain per second of waiting", runOnServer = true,
+            requiredPermission = PermissionManager.CHEAT_PERMISSION)
+    public String pathSearchAging(@CommandParam("perSecond") float perSecond) {
+        setAgingPerSecond(perSecond);
+        return "Path requests gain " + perSecond + " urgency per second";
+    }
+
+    @Override
+    public void update(float delta) {
+        for (int i = 0; i < searchBudget && !queue.isEmpty(); i++) {
+            Request request = queue.poll();
+            if (logger.isDebugEnabled()) {
+                float waitingSeconds = (time.getGameTimeInMs() - request.createdAt) / 1000f;
+                logger.debug("Starting path request {} with urgency {}", request.id, request.urgency + waitingSeconds * agingPerSecond);
+            }
+            int id = pathfinderSystem.requestPath(request.config, request.callback);
+            if (id == -1) {
+                logger.debug("Path request {} was rejected by the pathfinder", request.id);
+                request.onRejected.run();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        queue.clear();
+        super.shutdown();
+    }
+
+    /**
+     * The urgency of the request at game time zero.
+     * <p>
+     * Its urgency at any time {@code t} is {@code rank + t * agingPerSecond}, which adds the same amount to all queued requests.
+     */
+    private double rank(Request request) {
+        return request.urgency - request.createdAt / 1000d * agingPerSecond;
+    }
+
+    private float distanceToNearestPlayer(EntityRef requester) {
+        LocationComponent location = requester != null ? requester.getComponent(LocationComponent.class) : null;
+        if (location == null) {
+            return MAX_RANKED_DISTANCE;
+        }
+        location.getWorldPosition(position);
+        float minDistanceSquared = Math.min(MAX_RANKED_DISTANCE * MAX_RANKED_DISTANCE,
+                playerSnapshotSystem.nearestAliveDistanceSquared(position));
+        return (float) Math.sqrt(minDistanceSquared);
+    }
+
+    private static final class Request {
+        private final int id;
+        private final JPSConfig config;
+        private final PathfinderCallback callback;
+        private final Runnable onRejected;
+        /** The urgency of the request when it was made. */
+        private final float urgency;
+        private final long createdAt;
+        /** The key in the queue, see {@link #rank(Request)}. */
+        private double rank;
+
+        Request(int id, JPSConfig config, PathfinderCallback callback, Runnable onRejected, float urgency, long createdAt) {
+            this.id = id;
+            this.config = config;
+            this.callback = callback;
+            this.onRejected = onRejected;
+            this.urgency = urgency;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.systems;
+
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.logic.characters.AliveCharacterComponent;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.network.ClientComponent;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+
+import java.util.Arrays;
+
+/**
+ * Provides the player characters of all clients, gathered once per tick.
+ * <p>
+ * Actions and systems looking for players should query this system instead of walking all clients themselves. The snapshot is rebuilt
+ * on every update, including ticks in which the game time stands still, e.g., while the game is paused. It is stored in plain arrays,
+ * so that queries neither look up components nor allocate. Queries made before the first update build the snapshot on demand.
+ * <p>
+ * Player characters are addressed by their index in the snapshot, which is only valid until the next update. Characters without a
+ * location are left out.
+ */
+@Share(PlayerSnapshotSystem.class)
+@RegisterSystem(RegisterMode.AUTHORITY)
+public class PlayerSnapshotSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    @In
+    private EntityManager entityManager;
+
+    private EntityRef[] characters = new EntityRef[INITIAL_CAPACITY];
+    private float[] xs = new float[INITIAL_CAPACITY];
+    private float[] ys = new float[INITIAL_CAPACITY];
+    private float[] zs = new float[INITIAL_CAPACITY];
+    private boolean[] alive = new boolean[INITIAL_CAPACITY];
+    private int count;
+    private int aliveCount;
+
+    // whether the snapshot has been built at least once
+    private boolean built;
+    private final Vector3f position = new Vector3f();
+
+    /**
+     * The number of player characters in the snapshot, including dead ones.
+     */
+    public int size() {
+        ensureBuilt();
+        return count;
+    }
+
+    /**
+     * The number of living player characters in the snapshot.
+     */
+    public int getAliveCount() {
+        ensureBuilt();
+        return aliveCount;
+    }
+
+    public EntityRef getCharacter(int index) {
+        ensureBuilt();
+        return characters[index];
+    }
+
+    public boolean isAlive(int index) {
+        ensureBuilt();
+        return alive[index];
+    }
+
+    public float getX(int index) {
+        ensureBuilt();
+        return xs[index];
+    }
+
+    public float getY(int index) {
+        ensureBuilt();
+        return ys[index];
+    }
+
+    public float getZ(int index) {
+        ensureBuilt();
+        return zs[index];
+    }
+
+    /**
+     * The world position of a player character.
+     *
+     * @param index the index of the character in the snapshot
+     * @param dest will hold the result
+     * @return dest
+     */
+    public Vector3f getPosition(int index, Vector3f dest) {
+        ensureBuilt();
+        return dest.set(xs[index], ys[index], zs[index]);
+    }
+
+    /**
+     * The squared distance between a player character and the given position.
+     */
+    public float distanceSquared(int index, Vector3fc to) {
+        ensureBuilt();
+        return distanceSquaredTo(index, to);
+    }
+
+    /**
+     * The index of the living player character closest to the given position.
+     *
+     * @param to the position to measure from
+     * @param maxDistance the maximum distance (in blocks) of the character
+     * @return the index of the closest character, or -1 if no living character is within {@code maxDistance}
+     */
+    public int findClosestAlive(Vector3fc to, float maxDistance) {
+        ensureBuilt();
+        int closest = -1;
+        float maxDistanceSquared = maxDistance * maxDistance;
+        float minDistanceSquared = Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            if (!alive[i]) {
+                continue;
+            }
+            float distanceSquared = distanceSquaredTo(i, to);
+            if (distanceSquared <= maxDistanceSquared && distanceSquared < minDistanceSquared) {
+                closest = i;
+                minDistanceSquared = distanceSquared;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * The squared distance from the given position to the closest living player character, {@link Float#MAX_VALUE} if there is none.
+     */
+    public float nearestAliveDistanceSquared(Vector3fc to) {
+        ensureBuilt();
+        float minDistanceSquared = Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            if (alive[i]) {
+                minDistanceSquared = Math.min(minDistanceSquared, distanceSquaredTo(i, to));
+            }
+        }
+        return minDistanceSquared;
+    }
+
+    @Override
+    public void update(float delta) {
+        rebuild();
+    }
+
+    @Override
+    public void shutdown() {
+        Arrays.fill(characters, null);
+        count = 0;
+        aliveCount = 0;
+        built = false;
+        super.shutdown();
+    }
+
+    /**
+     * Build the snapshot for queries made before the first update.
+     */
+    private void ensureBuilt() {
+        if (!built) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        built = true;
+        Arrays.fill(characters, 0, count, null);
+        count = 0;
+        aliveCount = 0;
+        for (EntityRef client : entityManager.getEntitiesWith(ClientComponent.class)) {
+            EntityRef character = client.getComponent(ClientComponent.class).character;
+            LocationComponent location = character.getComponent(LocationComponent.class);
+            if (location == null) {
+                continue;
+            }
+            if (count == characters.length) {
+                grow();
+            }
+            location.getWorldPosition(position);
+            characters[count] = character;
+            xs[count] = position.x;
+            ys[count] = position.y;
+            zs[count] = position.z;
+            alive[count] = character.hasComponent(AliveCharacterComponent.class);
+            if (alive[count]) {
+                aliveCount++;
+            }
+            count++;
+        }
+    }
+
+    private float distanceSquaredTo(int index, Vector3fc to) {
+        float dx = xs[index] - to.x();
+        float dy = ys[index] - to.y();
+        float dz = zs[index] - to.z();
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private void grow() {
+        int capacity = characters.length * 2;
+        characters = Arrays.copyOf(characters, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        zs = Arrays.copyOf(zs, capacity);
+        alive = Arrays.copyOf(alive, capacity);
+    }
+}
@@ -4,43 +4,92 @@ package org.terasology.module.behaviors.systems;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.joml.Vector3ic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.engine.core.SimpleUri;
 import org.terasology.engine.core.Time;
 import org.terasology.engine.core.Uri;
 import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnChangedComponent;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterMode;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.logic.characters.CharacterMovementComponent;
 import org.terasology.engine.registry.In;
 import org.terasology.engine.registry.Share;
+import org.terasology.engine.world.OnChangedBlock;
 import org.terasology.engine.world.WorldProvider;
+import org.terasology.engine.world.block.BlockComponent;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
 import org.terasology.module.behaviors.components.MinionMoveComponent;
 import org.terasology.module.behaviors.plugin.CompositeMovementPlugin;
 import org.terasology.module.behaviors.plugin.FallingMovementPlugin;
 import org.terasology.module.behaviors.plugin.FlyingMovementPlugin;
+import org.terasology.module.behaviors.plugin.JpsPluginRegistry;
 import org.terasology.module.behaviors.plugin.LeapingMovementPlugin;
 import org.terasology.module.behaviors.plugin.MovementPlugin;
 import org.terasology.module.behaviors.plugin.SwimmingMovementPlugin;
 import org.terasology.module.behaviors.plugin.WalkingMovementPlugin;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Function;
 
+/**
+ * Provides the {@link MovementPlugin} for an actor based on the movement types listed in its {@link MinionMoveComponent}.
+ * <p>
+ * Each registered movement plugin is assigned a compact numeric id. The movement types of an actor are resolved to these ids once when
+ * its {@link MinionMoveComponent} is activated or its list of movement types changes. Lookups in the hot path only use the resolved
+ * ids.
+ * <p>
+ * Composed plugins are cached per movement profile, i.e., the resolved plugin ids and the character dimensions. Actors sharing the
+ * same profile share the same plugin instance. The per-entity cache is invalidated when either {@link MinionMoveComponent} or
+ * {@link CharacterMovementComponent} changes in a way that affects the profile.
+ * <p>
+ * As plugins are shared between actors, the suppliers given to {@link #registerMovementPlugin(String, Function)} must not capture
+ * state of the specific entity they are called with.
+ */
 @Share(PluginSystem.class)
 @RegisterSystem(RegisterMode.AUTHORITY)
 public class PluginSystem extends BaseComponentSystem {
     private static final Logger logger = LoggerFactory.getLogger(PluginSystem.class);
 
+    /** The number of recent block changes remembered for {@link #hasBlockChangedNear(long, Vector3ic, Vector3ic)}. */
+    private static final int BLOCK_CHANGE_HISTORY = 64;
+
     @In
     private WorldProvider worldProvider;
 
     @In
     private Time time;
 
-    private final Map<Uri, Function<EntityRef, MovementPlugin>> registeredPlugins = Maps.newHashMap();
+    /** The plugin id for each registered movement plugin URI; the id is the index into {@link #registeredPlugins}. */
+    private final Map<Uri, Integer> pluginIds = Maps.newHashMap();
+
+    private final List<Function<EntityRef, MovementPlugin>> registeredPlugins = Lists.newArrayList();
+
+    /** The shared pathfinding plugins handed out by the basic movement plugins. */
+    private final JpsPluginRegistry jpsPluginRegistry = new JpsPluginRegistry();
+
+    /** The shared plugin instances, one per distinct movement profile. */
+    private final Map<MovementProfile, MovementPlugin> profilePlugins = Maps.newHashMap();
+
+    /** Used by {@code move_to} if an actor's own movement plugin cannot compute a movement, created lazily. */
+    private MovementPlugin fallbackPlugin;
+
+    /** The resolved movement state of each known entity. */
+    private final Map<EntityRef, EntityMovement> entityMovements = Maps.newHashMap();
+
+    // the positions of the most recently changed blocks, as a ring buffer indexed by the change count
+    private final int[] changedX = new int[BLOCK_CHANGE_HISTORY];
+    private final int[] changedY = new int[BLOCK_CHANGE_HISTORY];
+    private final int[] changedZ = new int[BLOCK_CHANGE_HISTORY];
+    private long blockChangeCount;
 
     @Override
     public void initialise() {
@@ -52,43 +101,259 @@ public class PluginSystem extends BaseComponentSystem {
         registerMovementPlugin("falling", (entity) -> new FallingMovementPlugin(worldProvider, time));
     }
 
+    @Override
+    public void shutdown() {
+        profilePlugins.clear();
+        entityMovements.clear();
+        jpsPluginRegistry.clear();
+        fallbackPlugin = null;
+        super.shutdown();
+    }
+
     public void registerMovementPlugin(String name, Function<EntityRef, MovementPlugin> supplier) {
-        SimpleUri uri = new SimpleUri(name);
-        if (uri.getModuleName().isEmpty()) {
-            uri = new SimpleUri("Behaviors", name);
-        }
+        SimpleUri uri = toUri(name);
 
         if (!uri.isValid()) {
             logger.error("Not registering invalid movement plugin URI: {}", uri);
             return;
         }
 
-        if (registeredPlugins.containsKey(uri)) {
+        Integer id = pluginIds.get(uri);
+        if (id != null) {
             logger.warn("MovementPlugin {} already registered, overwriting", uri);
+            registeredPlugins.set(id, supplier);
+        } else {
+            pluginIds.put(uri, registeredPlugins.size());
+            registeredPlugins.add(supplier);
         }
 
-        registeredPlugins.put(uri, supplier);
+        // cached plugins may have been composed from an outdated supplier, and unknown movement types may resolve now
+        profilePlugins.clear();
+        entityMovements.clear();
     }
 
+    /**
+     * Retrieve the movement plugin for the given entity.
+     * <p>
+     * The returned plugin is shared between all actors with the same movement profile and must not be modified.
+     *
+     * @param entity the actor to get the movement plugin for; must have a {@link MinionMoveComponent}
+     * @return the (cached) movement plugin composed from the entity's movement types
+     */
     public MovementPlugin getMovementPlugin(EntityRef entity) {
-        List<MovementPlugin> plugins = Lists.newArrayList();
-        MinionMoveComponent component = entity.getComponent(MinionMoveComponent.class);
-        for (String movementType : component.movementTypes) {
+        EntityMovement movement = entityMovements.get(entity);
+        if (movement == null) {
+            movement = resolve(entity, entity.getComponent(MinionMoveComponent.class));
+        }
+        if (movement.plugin == null) {
+            movement.plugin = profilePlugins.get(movement.profile);
+            if (movement.plugin == null) {
+                movement.plugin = createMovementPlugin(entity, movement.profile);
+                profilePlugins.put(movement.profile, movement.plugin);
+            }
+        }
+        return movement.plugin;
+    }
+
+    /**
+     * The plugin to fall back to if an actor's own movement plugin cannot compute a movement, e.g., because the actor sank into a
+     * block.
+     * <p>
+     * The plugin walks straight towards the destination. It shares its pathfinding plugins with the other walking plugins.
+     */
+    public MovementPlugin getFallbackPlugin() {
+        if (fallbackPlugin == null) {
+            fallbackPlugin = new WalkingMovementPlugin(worldProvider, time);
+            fallbackPlugin.setJpsPluginRegistry(jpsPluginRegistry);
+        }
+        return fallbackPlugin;
+    }
+
+    @ReceiveEvent(components = MinionMoveComponent.class)
+    public void onMinionMoveActivated(OnActivatedComponent event, EntityRef entity, MinionMoveComponent minionMoveComponent) {
+        resolve(entity, minionMoveComponent);
+    }
+
+    @ReceiveEvent(components = MinionMoveComponent.class)
+    public void onMinionMoveChanged(OnChangedComponent event, EntityRef entity, MinionMoveComponent minionMoveComponent) {
+        EntityMovement movement = entityMovements.get(entity);
+        if (movement == null || !movement.movementTypes.equals(minionMoveComponent.movementTypes)) {
+            resolve(entity, minionMoveComponent);
+        }
+    }
+
+    @ReceiveEvent(components = CharacterMovementComponent.class)
+    public void onCharacterMovementChanged(OnChangedComponent event, EntityRef entity, CharacterMovementComponent characterMovement) {
+        EntityMovement movement = entityMovements.get(entity);
+        if (movement != null && !movement.profile.hasDimensions(characterMovement)) {
+            movement.profile = new MovementProfile(movement.profile.pluginIds, characterMovement);
+            movement.plugin = null;
+        }
+    }
+
+    @ReceiveEvent(components = MinionMoveComponent.class)
+    public void onMinionMoveDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        entityMovements.remove(entity);
+    }
+
+    /**
+     * Remember the changed block, so that movement decisions depending on it can be revisited (see
+     * {@link #hasBlockChangedNear(long, Vector3ic, Vector3ic)}).
+     */
+    @ReceiveEvent(components = BlockComponent.class)
+    public void onBlockChanged(OnChangedBlock event, EntityRef blockEntity) {
+        Vector3ic pos = event.getBlockPosition();
+        int slot = (int) (blockChangeCount % BLOCK_CHANGE_HISTORY);
+        changedX[slot] = pos.x();
+        changedY[slot] = pos.y();
+        changedZ[slot] = pos.z();
+        blockChangeCount++;
+    }
+
+    /**
+     * The number of blocks changed so far, to be passed to {@link #hasBlockChangedNear(long, Vector3ic, Vector3ic)} later.
+     */
+    public long getBlockChangeCount() {
+        return blockChangeCount;
+    }
 
-            // if the module name is omitted, assume it's from the base module
-            SimpleUri uri = new SimpleUri(movementType);
-            if (uri.getModuleName().isEmpty()) {
-                uri = new SimpleUri("Behaviors", movementType);
+    /**
+     * Whether a block that may affect moving from {@code from} to {@code to} changed since {@code since} block changes.
+     * <p>
+     * Besides the blocks between {@code from} and {@code to}, this considers the ground below and the space above them the character
+     * needs to pass through. If more blocks changed since than are remembered, this is assumed to be the case.
+     *
+     * @param since the result of {@link #getBlockChangeCount()} when the movement decision was made
+     */
+    public boolean hasBlockChangedNear(long since, Vector3ic from, Vector3ic to) {
+        if (blockChangeCount - since > BLOCK_CHANGE_HISTORY) {
+            return true;
+        }
+        int minX = Math.min(from.x(), to.x()) - 1;
+        int maxX = Math.max(from.x(), to.x()) + 1;
+        int minY = Math.min(from.y(), to.y()) - 1;
+        int maxY = Math.max(from.y(), to.y()) + 2;
+        int minZ = Math.min(from.z(), to.z()) - 1;
+        int maxZ = Math.max(from.z(), to.z()) + 1;
+        for (long i = since; i < blockChangeCount; i++) {
+            int slot = (int) (i % BLOCK_CHANGE_HISTORY);
+            if (changedX[slot] >= minX && changedX[slot] <= maxX
+                    && changedY[slot] >= minY && changedY[slot] <= maxY
+                    && changedZ[slot] >= minZ && changedZ[slot] <= maxZ) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            if (!uri.isValid() || !registeredPlugins.containsKey(uri)) {
+    /**
+     * Resolve the movement types of the given entity to plugin ids and store the result for subsequent lookups.
+     * <p>
+     * Unknown or invalid movement types are skipped with a warning. Duplicates are ignored, otherwise the declared order of the
+     * movement types is kept as it determines which plugin is preferred when moving.
+     */
+    private EntityMovement resolve(EntityRef entity, MinionMoveComponent minionMoveComponent) {
+        int[] ids = new int[minionMoveComponent.movementTypes.size()];
+        int count = 0;
+        for (String movementType : minionMoveComponent.movementTypes) {
+            SimpleUri uri = toUri(movementType);
+            Integer id = uri.isValid() ? pluginIds.get(uri) : null;
+            if (id == null) {
                 logger.warn("Unknown or invalid MovementPlugin requested: {}", uri);
+                continue;
             }
+            if (!contains(ids, count, id)) {
+                ids[count++] = id;
+            }
+        }
 
-            MovementPlugin newPlugin = registeredPlugins.get(uri).apply(entity);
-            plugins.add(newPlugin);
+        EntityMovement movement = new EntityMovement(minionMoveComponent.movementTypes,
+                new MovementProfile(Arrays.copyOf(ids, count), entity.getComponent(CharacterMovementComponent.class)));
+        entityMovements.put(entity, movement);
+        return movement;
+    }
 
+    private MovementPlugin createMovementPlugin(EntityRef entity, MovementProfile profile) {
+        List<MovementPlugin> plugins = Lists.newArrayList();
+        for (int id : profile.pluginIds) {
+            MovementPlugin newPlugin = registeredPlugins.get(id).apply(entity);
+            if (newPlugin.getJpsPluginRegistry() == null) {
+                newPlugin.setJpsPluginRegistry(jpsPluginRegistry);
+            }
+            plugins.add(newPlugin);
         }
         return new CompositeMovementPlugin(worldProvider, time, plugins);
     }
+
+    private static SimpleUri toUri(String name) {
+        // if the module name is omitted, assume it's from the base module
+        SimpleUri uri = new SimpleUri(name);
+        if (uri.getModuleName().isEmpty()) {
+            uri = new SimpleUri("Behaviors", name);
+        }
+        return uri;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The resolved movement state of a single entity.
+     */
+    private static final class EntityMovement {
+        /** The movement types the {@link #profile} was resolved from. */
+        private final List<String> movementTypes;
+        private MovementProfile profile;
+        /** The shared plugin for {@link #profile}, looked up lazily. */
+        private MovementPlugin plugin;
+
+        EntityMovement(List<String> movementTypes, MovementProfile profile) {
+            this.movementTypes = Lists.newArrayList(movementTypes);
+            this.profile = profile;
+        }
+    }
+
+    /**
+     * The properties of an actor that determine which movement plugin it uses.
+     */
+    private static final class MovementProfile {
+        private final int[] pluginIds;
+        private final float radius;
+        private final float height;
+
+        MovementProfile(int[] pluginIds, CharacterMovementComponent characterMovement) {
+            this.pluginIds = pluginIds;
+            this.radius = characterMovement != null ? characterMovement.radius : 0;
+            this.height = characterMovement != null ? characterMovement.height : 0;
+        }
+
+        boolean hasDimensions(CharacterMovementComponent characterMovement) {
+            return radius == characterMovement.radius && height == characterMovement.height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            MovementProfile that = (MovementProfile) o;
+            return Float.compare(that.radius, radius) == 0
+                    && Float.compare(that.height, height) == 0
+                    && Arrays.equals(pluginIds, that.pluginIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hash(radius, height) + Arrays.hashCode(pluginIds);
+        }
+    }
 }
@@ -0,0 +1,124 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.systems;
+
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.terasology.engine.logic.characters.CharacterMoveInputEvent;
+
+/**
+ * Collects the movement wishes of all behavior nodes of an actor within a single tick.
+ * <p>
+ * Nodes do not send movement input themselves, but write into the actor's steering (see {@link MinionMoveSystem#getSteering}). At the
+ * end of the tick, the movement system combines the wishes into a single {@link CharacterMoveInputEvent} and clears the steering:
+ * <ul>
+ *     <li>the drive is taken from the last movement,</li>
+ *     <li>the view direction is taken from the last look, or from the movement if the actor did not look anywhere,</li>
+ *     <li>a jump is requested if any node asked for one.</li>
+ * </ul>
+ * The steering is owned by the {@link MinionMoveSystem} and only lives for the current tick, it is neither stored on the entity nor
+ * persisted.
+ */
+public final class Steering {
+
+    /** The desired movement, as computed by a movement plugin. */
+    public Vector3f drive = new Vector3f();
+    public float moveYaw;
+    public float movePitch;
+    public int sequenceNumber;
+    public boolean moving;
+
+    /** The desired view direction, overriding the view direction of the movement. */
+    public float lookYaw;
+    public float lookPitch;
+    public boolean looking;
+
+    public boolean jump;
+
+    /** The time span (in ms) the input is meant for, 0 if not known. */
+    public long delta;
+
+    /**
+     * Move as described by the given input, e.g., as computed by a movement plugin.
+     */
+    public void move(CharacterMoveInputEvent input) {
+        move(input.getMovementDirection(), input.getYaw(), input.getPitch(), input.getSequenceNumber(), input.isJumpRequested(),
+                input.getDeltaMs());
+    }
+
+    /**
+     * Move as described by the given values, without creating an input event first.
+     *
+     * @param direction the desired movement, copied into {@link #drive}
+     * @param yaw the yaw in degrees
+     * @param pitch the pitch in degrees
+     * @param sequence the sequence number of the input
+     * @param jumpRequested whether to jump
+     * @param deltaMs the time span (in ms) the input is meant for
+     */
+    public void move(Vector3fc direction, float yaw, float pitch, int sequence, boolean jumpRequested, long deltaMs) {
+        drive.set(direction);
+        moveYaw = yaw;
+        movePitch = pitch;
+        sequenceNumber = sequence;
+        moving = true;
+        jump |= jumpRequested;
+        delta = Math.max(delta, deltaMs);
+    }
+
+    /**
+     * Look into the given direction, independent of any movement.
+     *
+     * @param yaw the yaw in degrees
+     * @param pitch the pitch in degrees
+     */
+    public void lookAt(float yaw, float pitch) {
+        lookYaw = yaw;
+        lookPitch = pitch;
+        looking = true;
+    }
+
+    /**
+     * Stop moving, facing the given direction.
+     *
+     * @param yaw the yaw in degrees
+     */
+    public void stop(float yaw) {
+        drive.set(0);
+        moveYaw = yaw;
+        movePitch = 0;
+        moving = true;
+    }
+
+    public void jump() {
+        jump = true;
+    }
+
+    /**
+     * Whether any node expressed a movement wish since the last {@link #clear()}.
+     */
+    public boolean isSet() {
+        return moving || looking || jump;
+    }
+
+    public float getYaw() {
+        return looking ? lookYaw : moveYaw;
+    }
+
+    public float getPitch() {
+        return looking ? lookPitch : movePitch;
+    }
+
+    public void clear() {
+        drive.set(0);
+        moveYaw = 0;
+        movePitch = 0;
+        sequenceNumber = 0;
+        moving = false;
+        lookYaw = 0;
+        lookPitch = 0;
+        looking = false;
+        jump = false;
+        delta = 0;
+    }
+}
@@ -9,20 +9,28 @@ import org.terasology.module.behaviors.components.TerritoryDistance;
 import org.terasology.engine.entitySystem.entity.EntityManager;
 import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnChangedComponent;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterMode;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
-import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
 import org.terasology.engine.logic.location.LocationComponent;
 import org.terasology.engine.registry.In;
 import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.module.behaviors.events.TerritoryEnteredEvent;
+import org.terasology.module.behaviors.events.TerritoryLeftEvent;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
+/**
+ * Keeps the {@link TerritoryDistance} of territorial NPCs up to date.
+ * <p>
+ * The distance is only recomputed when an NPC's location changes, and only saved when the NPC crosses the territory radius or the
+ * distance changed by at least the update threshold. NPCs standing still thus cost nothing.
+ */
 @RegisterSystem(RegisterMode.AUTHORITY)
-public class TerritorialBehaviourSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+public class TerritorialBehaviourSystem extends BaseComponentSystem {
     
     private static Logger logger = LoggerFactory.getLogger(TerritorialBehaviourSystem.class);
 
@@ -30,6 +38,7 @@ public class TerritorialBehaviourSystem extends BaseComponentSystem implements U
     public EntityManager entityManager;
     private List<Vector3f> territories = new ArrayList<Vector3f>();
     private Random random = new Random();
+    private final Vector3f position = new Vector3f();
     
 
     @Override
@@ -37,26 +46,42 @@ public class TerritorialBehaviourSystem extends BaseComponentSystem implements U
         territories.clear();
     }
 
-    /**
-     * Update function for the Component System, which is called each
-     * time the engine is updated.
-     *
-     * @param delta The time (in seconds) since the last engine update.
-     */
-    @Override
-    public void update(float delta) {
-        for (EntityRef entity : entityManager.getEntitiesWith(TerritoryDistance.class, LocationComponent.class)) {
-            TerritoryDistance territoryDistance = entity.getComponent(TerritoryDistance.class);
-            territoryDistance.distanceSquared = territoryDistance.location.distanceSquared(
-                entity.getComponent(LocationComponent.class).getWorldPosition(new Vector3f()));
-            entity.saveComponent(territoryDistance);
-        }
-    }
-
     @ReceiveEvent(components = TerritoryDistance.class)
     public void onCreatureSpawned(OnActivatedComponent event, EntityRef creature) {
         TerritoryDistance territoryDistance = creature.getComponent(TerritoryDistance.class);
         territoryDistance.location = creature.getComponent(LocationComponent.class).getWorldPosition(new Vector3f());
+        territoryDistance.distanceSquared = 0;
         creature.saveComponent(territoryDistance);
     }
+
+    @ReceiveEvent(components = {TerritoryDistance.class, LocationComponent.class})
+    public void onCreatureMoved(OnChangedComponent event, EntityRef creature, TerritoryDistance territoryDistance,
+                                LocationComponent location) {
+        if (territoryDistance.location == null) {
+            return;
+        }
+        float distanceSquared = territoryDistance.location.distanceSquared(location.getWorldPosition(position));
+        float radiusSquared = territoryDistance.radius * territoryDistance.radius;
+        boolean wasInside = territoryDistance.distanceSquared < radiusSquared;
+        boolean inside = distanceSquared < radiusSquared;
+        if (wasInside == inside && !exceedsThreshold(territoryDistance, distanceSquared)) {
+            return;
+        }
+
+        territoryDistance.distanceSquared = distanceSquared;
+        creature.saveComponent(territoryDistance);
+        if (wasInside && !inside) {
+            creature.send(new TerritoryLeftEvent());
+        } else if (!wasInside && inside) {
+            creature.send(new TerritoryEnteredEvent());
+        }
+    }
+
+    /**
+     * Whether the distance to the territory changed by at least the update threshold since it was last saved.
+     */
+    private static boolean exceedsThreshold(TerritoryDistance territoryDistance, float distanceSquared) {
+        float change = (float) Math.abs(Math.sqrt(distanceSquared) - Math.sqrt(territoryDistance.distanceSquared));
+        return change >= territoryDistance.updateThreshold;
+    }
 }
@@ -0,0 +1,46 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.util;
+
+/**
+ * Packs three integer coordinates into a single long, e.g., to key blocks or grid cells in a map or to store waypoints compactly.
+ * <p>
+ * Each axis takes 21 bits, so coordinates from {@link #MIN_COORDINATE} to {@link #MAX_COORDINATE} are restored exactly. Coordinates
+ * outside that range wrap around, which is fine for hashing grid cells, but not for storing positions.
+ */
+public final class PackedCoordinates {
+    /** The smallest coordinate that survives packing. */
+    public static final int MIN_COORDINATE = -(1 << 20);
+    /** The largest coordinate that survives packing. */
+    public static final int MAX_COORDINATE = (1 << 20) - 1;
+
+    private static final int AXIS_BITS = 21;
+    private static final long AXIS_MASK = (1L << AXIS_BITS) - 1;
+
+    private PackedCoordinates() {
+    }
+
+    public static long pack(int x, int y, int z) {
+        return ((x & AXIS_MASK) << (2 * AXIS_BITS)) | ((y & AXIS_MASK) << AXIS_BITS) | (z & AXIS_MASK);
+    }
+
+    /**
+     * Whether the coordinate is restored exactly by {@link #pack(int, int, int)} and unpacking.
+     */
+    public static boolean isInRange(int coordinate) {
+        return coordinate >= MIN_COORDINATE && coordinate <= MAX_COORDINATE;
+    }
+
+    // shift the axis to the top of the long and back down again to restore the sign
+    public static int unpackX(long packed) {
+        return (int) (packed << (64 - 3 * AXIS_BITS) >> (64 - AXIS_BITS));
+    }
+
+    public static int unpackY(long packed) {
+        return (int) (packed << (64 - 2 * AXIS_BITS) >> (64 - AXIS_BITS));
+    }
+
+    public static int unpackZ(long packed) {
+        return (int) (packed << (64 - AXIS_BITS) >> (64 - AXIS_BITS));
+    }
+}
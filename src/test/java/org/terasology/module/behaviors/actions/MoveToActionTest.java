@@ -0,0 +1,254 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.actions;
+
+import com.google.common.collect.Lists;
+import org.joml.Vector3f;
+import org.joml.Vector3i;
+import org.joml.Vector3ic;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.context.Context;
+import org.terasology.engine.context.internal.ContextImpl;
+import org.terasology.engine.entitySystem.entity.EntityBuilder;
+import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.integrationenvironment.ModuleTestingHelper;
+import org.terasology.engine.integrationenvironment.jupiter.IntegrationEnvironment;
+import org.terasology.engine.logic.behavior.BehaviorComponent;
+import org.terasology.engine.logic.behavior.core.Actor;
+import org.terasology.engine.logic.behavior.core.BehaviorState;
+import org.terasology.engine.logic.characters.CharacterMoveInputEvent;
+import org.terasology.engine.logic.characters.CharacterMovementComponent;
+import org.terasology.engine.logic.characters.MovementMode;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.InjectionHelper;
+import org.terasology.engine.world.WorldProvider;
+import org.terasology.engine.world.block.Block;
+import org.terasology.engine.world.block.BlockManager;
+import org.terasology.engine.world.block.BlockRegion;
+import org.terasology.module.behaviors.components.MinionMoveComponent;
+import org.terasology.module.behaviors.plugin.CompositeMovementPlugin;
+import org.terasology.module.behaviors.systems.MinionMoveSystem;
+import org.terasology.module.behaviors.systems.PluginSystem;
+import org.terasology.module.behaviors.systems.Steering;
+
+import java.lang.management.ManagementFactory;
+
+@IntegrationEnvironment(dependencies = "Behaviors")
+public class MoveToActionTest {
+
+    private static final int FLOOR_HEIGHT = 40;
+    private static final Vector3ic START = new Vector3i(0, FLOOR_HEIGHT + 1, 0);
+    private static final Vector3ic EAST = new Vector3i(1, FLOOR_HEIGHT + 1, 0);
+
+    private static final int WARMUP_TICKS = 20_000;
+    private static final int MEASURED_TICKS = 50_000;
+
+    @In
+    protected ModuleTestingHelper helper;
+    @In
+    protected WorldProvider worldProvider;
+    @In
+    protected BlockManager blockManager;
+    @In
+    protected EntityManager entityManager;
+    @In
+    protected PluginSystem pluginSystem;
+    @In
+    protected MinionMoveSystem minionMoveSystem;
+
+    private EntityRef entity;
+    private Actor actor;
+    private MoveToAction action;
+
+    @BeforeEach
+    void setup() {
+        // a floor of dirt with enough air above it for the character to walk on
+        Block air = blockManager.getBlock("engine:air");
+        Block dirt = blockManager.getBlock("CoreAssets:dirt");
+        BlockRegion region = new BlockRegion(-2, FLOOR_HEIGHT, -2, 2, FLOOR_HEIGHT + 3, 2);
+        helper.runUntil(helper.makeBlocksRelevant(region));
+        for (Vector3ic pos : region) {
+            worldProvider.setBlock(pos, pos.y() == FLOOR_HEIGHT ? dirt : air);
+        }
+
+        EntityBuilder builder = entityManager.newBuilder("Behaviors:testCharacter");
+        builder.setSendLifecycleEvents(true);
+        // the node is run by the test, not by the character's behavior tree
+        builder.removeComponent(BehaviorComponent.class);
+        builder.upsertComponent(MinionMoveComponent.class, maybeComponent -> {
+            MinionMoveComponent moveComponent = maybeComponent.orElse(new MinionMoveComponent());
+            moveComponent.movementTypes.clear();
+            moveComponent.movementTypes.add("walking");
+            return moveComponent;
+        });
+        builder.updateComponent(LocationComponent.class, location -> {
+            location.setWorldPosition(new Vector3f(START));
+            return location;
+        });
+        entity = builder.build();
+
+        action = new MoveToAction();
+        InjectionHelper.inject(action, helper.getHostContext());
+        actor = new Actor(entity);
+    }
+
+    @AfterEach
+    void clean() {
+        entity.destroy();
+    }
+
+    @Test
+    public void movesTowardsTargetThroughMovementPlugin() {
+        moveTo(EAST);
+
+        Assertions.assertEquals(BehaviorState.RUNNING, action.modify(actor, BehaviorState.UNDEFINED));
+
+        Steering steering = minionMoveSystem.getSteering(entity);
+        Assertions.assertTrue(steering.moving);
+        Assertions.assertTrue(steering.drive.x > 0, "expected to move east, but drive is " + steering.drive);
+        Assertions.assertEquals(0f, steering.drive.z, 0.001f);
+        // the yaw of a movement along the x axis (see MovementPlugin#getYaw)
+        Assertions.assertEquals(270f, steering.moveYaw, 0.1f);
+        Assertions.assertEquals(entity.getComponent(MinionMoveComponent.class).sequenceNumber, steering.sequenceNumber);
+    }
+
+    @Test
+    public void fallsBackToSharedWalkingPluginIfTargetIsUnreachable() {
+        worldProvider.setBlock(EAST, blockManager.getBlock("CoreAssets:dirt"));
+        moveTo(EAST);
+
+        Assertions.assertEquals(BehaviorState.RUNNING, action.modify(actor, BehaviorState.UNDEFINED));
+
+        Steering steering = minionMoveSystem.getSteering(entity);
+        Assertions.assertTrue(steering.moving);
+        Assertions.assertTrue(steering.drive.x > 0, "expected a nudge towards the target, but drive is " + steering.drive);
+        // the fallback plugin uses the same pathfinding plugin as the actor's walking plugin instead of creating its own
+        CompositeMovementPlugin movementPlugin = (CompositeMovementPlugin) pluginSystem.getMovementPlugin(entity);
+        Assertions.assertSame(movementPlugin.getPlugins().get(0).getJpsPlugin(entity),
+                pluginSystem.getFallbackPlugin().getJpsPlugin(entity));
+    }
+
+    @Test
+    public void succeedsWithinTargetArea() {
+        moveTo(START);
+
+        Assertions.assertEquals(BehaviorState.SUCCESS, action.modify(actor, BehaviorState.UNDEFINED));
+        Assertions.assertFalse(minionMoveSystem.getSteering(entity).isSet());
+    }
+
+    @Test
+    public void targetAreaMatchesShrunkBlockBounds() {
+        Vector3i target = new Vector3i(3, 10, -2);
+
+        Assertions.assertTrue(MoveToAction.isInTargetArea(target, 0.1f, new Vector3f(3f, 10f, -2f)));
+        Assertions.assertTrue(MoveToAction.isInTargetArea(target, 0.1f, new Vector3f(3.39f, 9.61f, -2.39f)));
+        Assertions.assertFalse(MoveToAction.isInTargetArea(target, 0.1f, new Vector3f(3.45f, 10f, -2f)));
+        Assertions.assertFalse(MoveToAction.isInTargetArea(target, 0.1f, new Vector3f(3f, 10f, -1.5f)));
+        Assertions.assertFalse(MoveToAction.isInTargetArea(target, 0.1f, new Vector3f(4f, 10f, -2f)));
+    }
+
+    /**
+     * A steady-state tick of a moving actor, i.e., {@code move_to}'s modify and the dispatch of the steering, allocates nothing but the
+     * input event sent to the character movement.
+     * <p>
+     * Allowed per tick:
+     * <ul>
+     *     <li>one {@link CharacterMoveInputEvent} and</li>
+     *     <li>the copy of the movement direction it holds,</li>
+     * </ul>
+     * as the character movement may keep the event beyond the tick. The allowance is measured by allocating exactly these objects.
+     * The character movement itself is not part of the measurement: the events are caught before they are sent to the entity.
+     */
+    @Test
+    public void steadyStateTickOnlyAllocatesInputEvent() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean,
+                "allocated bytes counters are not available on this JVM");
+        com.sun.management.ThreadMXBean allocationCounter = (com.sun.management.ThreadMXBean) threadBean;
+        Assumptions.assumeTrue(allocationCounter.isThreadAllocatedMemorySupported()
+                && allocationCounter.isThreadAllocatedMemoryEnabled(), "allocated bytes counters are disabled");
+
+        CatchingMoveSystem moveSystem = new CatchingMoveSystem();
+        Context context = new ContextImpl(helper.getHostContext());
+        context.put(MinionMoveSystem.class, moveSystem);
+        MoveToAction measuredAction = new MoveToAction();
+        InjectionHelper.inject(measuredAction, context);
+
+        // the walking plugin switches the character to flying, but the character movement never runs in this test to do so
+        CharacterMovementComponent movement = entity.getComponent(CharacterMovementComponent.class);
+        movement.mode = MovementMode.FLYING;
+        entity.saveComponent(movement);
+        MinionMoveComponent minionMoveComponent = entity.getComponent(MinionMoveComponent.class);
+        minionMoveComponent.setPath(Lists.newArrayList(new Vector3i(EAST)));
+        entity.saveComponent(minionMoveComponent);
+        measuredAction.construct(actor);
+
+        // let the JIT compiler settle before measuring
+        tick(measuredAction, moveSystem, WARMUP_TICKS);
+        allocateInputs(moveSystem, WARMUP_TICKS);
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocationCounter.getThreadAllocatedBytes(threadId);
+        allocateInputs(moveSystem, MEASURED_TICKS);
+        long allowed = allocationCounter.getThreadAllocatedBytes(threadId) - before;
+
+        moveSystem.sent = 0;
+        before = allocationCounter.getThreadAllocatedBytes(threadId);
+        tick(measuredAction, moveSystem, MEASURED_TICKS);
+        long allocated = allocationCounter.getThreadAllocatedBytes(threadId) - before;
+
+        Assertions.assertEquals(MEASURED_TICKS, moveSystem.sent);
+        // allow for a few bytes of measurement noise, but less than a single byte per tick
+        Assertions.assertTrue(allocated < allowed + MEASURED_TICKS, "expected at most " + allowed + " bytes for the input events, but "
+                + allocated + " bytes were allocated in " + MEASURED_TICKS + " ticks");
+    }
+
+    private void tick(MoveToAction measuredAction, MinionMoveSystem moveSystem, int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            if (measuredAction.modify(actor, BehaviorState.RUNNING) != BehaviorState.RUNNING) {
+                Assertions.fail("expected the actor to keep moving");
+            }
+            moveSystem.update(0.05f);
+        }
+    }
+
+    /**
+     * Allocate the objects a tick is allowed to allocate, the same way {@link MinionMoveSystem} does.
+     */
+    private static void allocateInputs(CatchingMoveSystem moveSystem, int ticks) {
+        Vector3f drive = new Vector3f(1f, 0f, 0f);
+        for (int i = 0; i < ticks; i++) {
+            moveSystem.lastInput = new CharacterMoveInputEvent(i, 0f, 270f, new Vector3f(drive), false, false, false, 50);
+        }
+    }
+
+    /**
+     * Catches the input events instead of sending them, so that the character movement does not run.
+     */
+    private static final class CatchingMoveSystem extends MinionMoveSystem {
+        private CharacterMoveInputEvent lastInput;
+        private int sent;
+
+        @Override
+        protected void send(EntityRef entity, CharacterMoveInputEvent input) {
+            lastInput = input;
+            sent++;
+        }
+    }
+
+    /**
+     * Give the actor a path to the given block and start the node.
+     */
+    private void moveTo(Vector3ic target) {
+        MinionMoveComponent minionMoveComponent = entity.getComponent(MinionMoveComponent.class);
+        minionMoveComponent.setPath(Lists.newArrayList(new Vector3i(target)));
+        entity.saveComponent(minionMoveComponent);
+        action.construct(actor);
+    }
+}
@@ -0,0 +1,72 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.actions;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.joml.Vector3i;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.terasology.module.behaviors.plugin.PathSegments;
+import org.terasology.module.behaviors.plugin.StepChecks;
+
+import java.util.List;
+
+public class SimplifyPathTest {
+
+    private static final PathSegments.StepCheck OPEN = StepChecks.world(Sets.newHashSet());
+
+    @Test
+    public void collapseCollinearDropsLevelStraightRun() {
+        List<Vector3i> path = path(0, 0, 0, 1, 0, 0, 2, 0, 0, 3, 0, 0, 3, 0, 1);
+
+        Assertions.assertEquals(path(0, 0, 0, 3, 0, 0, 3, 0, 1), SimplifyPath.collapseCollinear(path, OPEN, 16));
+    }
+
+    @Test
+    public void collapseCollinearKeepsSlopes() {
+        List<Vector3i> stairs = path(0, 0, 0, 1, 1, 0, 2, 2, 0, 3, 3, 0);
+        List<Vector3i> leap = path(0, 0, 0, 1, 0, 0, 2, 1, 0, 3, 2, 0, 4, 2, 0);
+
+        Assertions.assertEquals(stairs, SimplifyPath.collapseCollinear(stairs, OPEN, 16));
+        Assertions.assertEquals(leap, SimplifyPath.collapseCollinear(leap, OPEN, 16));
+    }
+
+    @Test
+    public void collapseCollinearKeepsWaypointsThatCannotBeSkipped() {
+        List<Vector3i> path = path(0, 0, 0, 1, 0, 0, 2, 0, 0, 3, 0, 0, 4, 0, 0);
+
+        Assertions.assertEquals(path, SimplifyPath.collapseCollinear(path, (to, from) -> false, 16));
+        Assertions.assertEquals(path(0, 0, 0, 2, 0, 0, 4, 0, 0), SimplifyPath.collapseCollinear(path, OPEN, 2));
+    }
+
+    @Test
+    public void pullStringSkipsToFarthestVisibleWaypoint() {
+        List<Vector3i> path = path(0, 0, 0, 1, 0, 0, 2, 0, 0, 2, 0, 1, 2, 0, 2);
+
+        Assertions.assertEquals(path(0, 0, 0, 2, 0, 2), SimplifyPath.pullString(path, OPEN, 16));
+    }
+
+    @Test
+    public void pullStringKeepsCornersAroundObstacles() {
+        List<Vector3i> path = path(0, 0, 0, 1, 0, 0, 2, 0, 0, 2, 0, 1, 2, 0, 2);
+        PathSegments.StepCheck steps = StepChecks.world(Sets.newHashSet(new Vector3i(1, 0, 1)));
+
+        Assertions.assertEquals(path(0, 0, 0, 2, 0, 0, 2, 0, 2), SimplifyPath.pullString(path, steps, 16));
+    }
+
+    @Test
+    public void pullStringKeepsSlopes() {
+        List<Vector3i> path = path(0, 0, 0, 1, 0, 0, 2, 1, 0, 3, 1, 0, 4, 1, 0);
+
+        Assertions.assertEquals(path(0, 0, 0, 1, 0, 0, 2, 1, 0, 4, 1, 0), SimplifyPath.pullString(path, OPEN, 16));
+    }
+
+    private static List<Vector3i> path(int... coordinates) {
+        List<Vector3i> path = Lists.newArrayList();
+        for (int i = 0; i < coordinates.length; i += 3) {
+            path.add(new Vector3i(coordinates[i], coordinates[i + 1], coordinates[i + 2]));
+        }
+        return path;
+    }
+}
@@ -0,0 +1,135 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.components;
+
+import com.google.common.collect.Lists;
+import org.joml.Vector3i;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class MinionMoveComponentTest {
+
+    /**
+     * A straight path along the x axis with the given number of waypoints, starting at x = 0.
+     */
+    private static List<Vector3i> straightPath(int length) {
+        List<Vector3i> path = Lists.newArrayList();
+        for (int x = 0; x < length; x++) {
+            path.add(new Vector3i(x, 0, 0));
+        }
+        return path;
+    }
+
+    private static MinionMoveComponent withPath(int length, int pathIndex) {
+        MinionMoveComponent component = new MinionMoveComponent();
+        component.setPath(straightPath(length));
+        for (int i = 0; i < pathIndex; i++) {
+            component.advancePath();
+        }
+        return component;
+    }
+
+    private static List<Vector3i> detour() {
+        return Lists.newArrayList(new Vector3i(2, 0, 1), new Vector3i(3, 0, 1), new Vector3i(4, 0, 1), new Vector3i(4, 0, 0));
+    }
+
+    @Test
+    public void replacePathSectionSplicesWaypoints() {
+        MinionMoveComponent component = withPath(6, 0);
+        int version = component.getPathVersion();
+
+        // replace the waypoints 2..4, the detour ends on the old waypoint 4
+        component.replacePathSection(2, 4, detour());
+
+        List<Vector3i> expected = Lists.newArrayList(new Vector3i(0, 0, 0), new Vector3i(1, 0, 0));
+        expected.addAll(detour());
+        expected.add(new Vector3i(5, 0, 0));
+        Assertions.assertEquals(expected, component.getPath());
+        Assertions.assertEquals(7, component.getPathLength());
+        Assertions.assertNotEquals(version, component.getPathVersion());
+    }
+
+    @Test
+    public void pathIndexBeforeSectionIsKept() {
+        MinionMoveComponent component = withPath(6, 2);
+
+        component.replacePathSection(2, 4, detour());
+
+        Assertions.assertEquals(2, component.getPathIndex());
+        Assertions.assertEquals(new Vector3i(2, 0, 1), component.target);
+    }
+
+    @Test
+    public void pathIndexInsideSectionMovesToReplacement() {
+        MinionMoveComponent component = withPath(6, 4);
+
+        component.replacePathSection(2, 4, detour());
+
+        Assertions.assertEquals(2, component.getPathIndex());
+        Assertions.assertEquals(new Vector3i(2, 0, 1), component.target);
+    }
+
+    @Test
+    public void pathIndexBehindSectionKeepsWaypoint() {
+        MinionMoveComponent component = withPath(6, 5);
+
+        component.replacePathSection(2, 4, detour());
+
+        Assertions.assertEquals(6, component.getPathIndex());
+        Assertions.assertEquals(new Vector3i(5, 0, 0), component.target);
+    }
+
+    @Test
+    public void shorterReplacementShiftsPathIndexBack() {
+        MinionMoveComponent component = withPath(6, 5);
+
+        component.replacePathSection(1, 4, Lists.newArrayList(new Vector3i(4, 0, 0)));
+
+        Assertions.assertEquals(3, component.getPathLength());
+        Assertions.assertEquals(2, component.getPathIndex());
+        Assertions.assertEquals(new Vector3i(5, 0, 0), component.target);
+    }
+
+    @Test
+    public void waypointsSurvivePacking() {
+        int min = MinionMoveComponent.MIN_WAYPOINT_COORDINATE;
+        int max = MinionMoveComponent.MAX_WAYPOINT_COORDINATE;
+        List<Vector3i> path = Lists.newArrayList(
+                new Vector3i(0, 0, 0),
+                new Vector3i(-1, -1, -1),
+                new Vector3i(-17, 42, -123456),
+                new Vector3i(min, min, min),
+                new Vector3i(max, max, max),
+                new Vector3i(min, max, -1),
+                new Vector3i(max, min, 1));
+        MinionMoveComponent component = new MinionMoveComponent();
+
+        component.setPath(path);
+
+        Assertions.assertEquals(path, component.getPath());
+        Vector3i waypoint = new Vector3i();
+        for (int i = 0; i < path.size(); i++) {
+            Assertions.assertEquals(path.get(i), component.getWaypoint(i, waypoint));
+        }
+    }
+
+    @Test
+    public void waypointsOutOfRangeAreRejected() {
+        MinionMoveComponent component = withPath(3, 1);
+        int tooLarge = MinionMoveComponent.MAX_WAYPOINT_COORDINATE + 1;
+        int tooSmall = MinionMoveComponent.MIN_WAYPOINT_COORDINATE - 1;
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> component.setPath(Lists.newArrayList(new Vector3i(tooLarge, 0, 0))));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> component.setPath(Lists.newArrayList(new Vector3i(0, tooSmall, 0))));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> component.replacePathSection(1, 1, Lists.newArrayList(new Vector3i(0, 0, tooSmall))));
+
+        // the path is left untouched
+        Assertions.assertEquals(straightPath(3), component.getPath());
+        Assertions.assertEquals(1, component.getPathIndex());
+    }
+}
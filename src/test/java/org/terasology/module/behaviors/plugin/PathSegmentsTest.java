@@ -0,0 +1,61 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.plugin;
+
+import com.google.common.collect.Sets;
+import org.joml.Vector3i;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+public class PathSegmentsTest {
+
+    @Test
+    public void singleStepIsCheckedDirectly() {
+        Set<Vector3i> blocked = Sets.newHashSet(new Vector3i(1, 1, 0));
+
+        Assertions.assertTrue(PathSegments.isDirectlyReachable(StepChecks.world(blocked), new Vector3i(0, 0, 0), new Vector3i(1, 0, 1)));
+        Assertions.assertFalse(PathSegments.isDirectlyReachable(StepChecks.world(blocked), new Vector3i(0, 0, 0), new Vector3i(1, 1, 0)));
+    }
+
+    @Test
+    public void levelLineChecksEveryCrossedBlock() {
+        Vector3i from = new Vector3i(0, 0, 0);
+        Vector3i to = new Vector3i(4, 0, 2);
+
+        Assertions.assertTrue(PathSegments.isDirectlyReachable(StepChecks.world(Sets.newHashSet()), from, to));
+        // the line from (0, 0) to (4, 2) crosses the block (1, 0) before it reaches z = 0.5
+        Assertions.assertFalse(PathSegments.isDirectlyReachable(StepChecks.world(Sets.newHashSet(new Vector3i(1, 0, 0))), from, to));
+        Assertions.assertTrue(PathSegments.isDirectlyReachable(StepChecks.world(Sets.newHashSet(new Vector3i(2, 0, 0))), from, to));
+    }
+
+    @Test
+    public void levelLineThroughCornerNeedsBothNeighbours() {
+        Vector3i from = new Vector3i(0, 0, 0);
+        Vector3i to = new Vector3i(2, 0, 2);
+
+        Assertions.assertTrue(PathSegments.isDirectlyReachable(StepChecks.world(Sets.newHashSet()), from, to));
+        Assertions.assertFalse(PathSegments.isDirectlyReachable(StepChecks.world(Sets.newHashSet(new Vector3i(1, 0, 0))), from, to));
+        Assertions.assertFalse(PathSegments.isDirectlyReachable(StepChecks.world(Sets.newHashSet(new Vector3i(0, 0, 1))), from, to));
+    }
+
+    @Test
+    public void slopeMustRunThroughBlockCenters() {
+        Vector3i from = new Vector3i(0, 0, 0);
+
+        Assertions.assertTrue(PathSegments.isDirectlyReachable(StepChecks.world(Sets.newHashSet()), from, new Vector3i(3, 3, 0)));
+        Assertions.assertFalse(PathSegments.isDirectlyReachable(StepChecks.world(Sets.newHashSet(new Vector3i(2, 2, 0))), from,
+                new Vector3i(3, 3, 0)));
+        Assertions.assertFalse(PathSegments.isDirectlyReachable(StepChecks.world(Sets.newHashSet()), from, new Vector3i(4, 2, 0)));
+    }
+
+    @Test
+    public void negativeDirectionsAreChecked() {
+        Vector3i from = new Vector3i(0, 5, 0);
+        Vector3i to = new Vector3i(-3, 5, -3);
+
+        Assertions.assertTrue(PathSegments.isDirectlyReachable(StepChecks.world(Sets.newHashSet()), from, to));
+        Assertions.assertFalse(PathSegments.isDirectlyReachable(StepChecks.world(Sets.newHashSet(new Vector3i(-2, 5, -2))), from, to));
+    }
+}
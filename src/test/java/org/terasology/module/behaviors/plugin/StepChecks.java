@@ -0,0 +1,27 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.plugin;
+
+import org.joml.Vector3i;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.Set;
+
+/**
+ * Step checks standing in for pathfinding plugins in tests.
+ */
+public final class StepChecks {
+
+    private StepChecks() {
+    }
+
+    /**
+     * A world in which every step onto a block not in {@code blocked} is possible. Fails if asked about more than a single step.
+     */
+    public static PathSegments.StepCheck world(Set<Vector3i> blocked) {
+        return (to, from) -> {
+            Assertions.assertTrue(PathSegments.isSingleStep(from, to), "probed a step from " + from + " to " + to);
+            return !blocked.contains(to);
+        };
+    }
+}
@@ -0,0 +1,106 @@
+// Copyright 2022 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.module.behaviors.systems;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.integrationenvironment.jupiter.IntegrationEnvironment;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.registry.In;
+import org.terasology.module.behaviors.components.FollowComponent;
+import org.terasology.module.behaviors.components.MinionMoveComponent;
+
+import java.util.List;
+
+@IntegrationEnvironment(dependencies = "Behaviors")
+public class ActorSpatialIndexSystemTest {
+
+    @In
+    protected EntityManager entityManager;
+    @In
+    protected ActorSpatialIndexSystem actorSpatialIndexSystem;
+
+    private final List<EntityRef> actors = Lists.newArrayList();
+
+    @AfterEach
+    void clean() {
+        actors.forEach(EntityRef::destroy);
+        actors.clear();
+    }
+
+    @Test
+    public void radiusQueryFindsActorsInNeighbouringCells() {
+        // grid cells are 8 blocks wide, so these actors are in different cells, but close to each other
+        EntityRef center = spawn(7.9f, 0f, 7.9f);
+        EntityRef acrossX = spawn(8.1f, 0f, 7.9f);
+        EntityRef acrossZero = spawn(-0.1f, 0f, 7.9f);
+        EntityRef tooFar = spawn(7.9f, 0f, 16.1f);
+
+        Assertions.assertEquals(Sets.newHashSet(center, acrossX),
+                Sets.newHashSet(actorSpatialIndexSystem.findWithinRange(new Vector3f(8f, 0f, 8f), 1f, null)));
+        Assertions.assertEquals(Sets.newHashSet(acrossX, acrossZero),
+                Sets.newHashSet(actorSpatialIndexSystem.findNeighbours(center, 8.05f, null)));
+        Assertions.assertEquals(Sets.newHashSet(center, acrossX, acrossZero, tooFar),
+                Sets.newHashSet(actorSpatialIndexSystem.findWithinRange(new Vector3f(), Float.MAX_VALUE, null)));
+    }
+
+    @Test
+    public void radiusQueryFiltersByComponent() {
+        EntityRef follower = spawn(0f, 0f, 0f);
+        follower.addComponent(new FollowComponent());
+        spawn(1f, 0f, 0f);
+
+        Assertions.assertEquals(Lists.newArrayList(follower),
+                actorSpatialIndexSystem.findWithinRange(new Vector3f(), 5f, FollowComponent.class));
+    }
+
+    @Test
+    public void nearestQuerySearchesBeyondTheCenterCell() {
+        // the actor in the same cell is further away than the one just across the cell boundary
+        EntityRef sameCell = spawn(0.5f, 0f, 0.5f);
+        EntityRef nextCell = spawn(8.1f, 0f, 7.9f);
+        EntityRef farAway = spawn(40f, 0f, 0f);
+
+        Vector3f center = new Vector3f(7.9f, 0f, 7.9f);
+        Assertions.assertEquals(Lists.newArrayList(nextCell, sameCell),
+                actorSpatialIndexSystem.findNearest(center, 2, 100f, null));
+        Assertions.assertEquals(Lists.newArrayList(nextCell, sameCell, farAway),
+                actorSpatialIndexSystem.findNearest(center, 5, Float.POSITIVE_INFINITY, null));
+        Assertions.assertEquals(Lists.newArrayList(nextCell),
+                actorSpatialIndexSystem.findNearest(center, 5, 1f, null));
+    }
+
+    @Test
+    public void nearestNeighboursFollowLocationChanges() {
+        EntityRef actor = spawn(0f, 0f, 0f);
+        EntityRef first = spawn(3f, 0f, 0f);
+        EntityRef second = spawn(-5f, 0f, 0f);
+        Assertions.assertEquals(Lists.newArrayList(first, second),
+                actorSpatialIndexSystem.findNearestNeighbours(actor, 2, 10f, null));
+
+        // moving into another cell updates the index
+        LocationComponent location = first.getComponent(LocationComponent.class);
+        location.setWorldPosition(new Vector3f(-9f, 0f, 0f));
+        first.saveComponent(location);
+        Assertions.assertEquals(Lists.newArrayList(second, first),
+                actorSpatialIndexSystem.findNearestNeighbours(actor, 2, 10f, null));
+
+        first.destroy();
+        Assertions.assertEquals(Lists.newArrayList(second),
+                actorSpatialIndexSystem.findNearestNeighbours(actor, 2, 10f, null));
+    }
+
+    private EntityRef spawn(float x, float y, float z) {
+        LocationComponent location = new LocationComponent();
+        location.setWorldPosition(new Vector3f(x, y, z));
+        EntityRef actor = entityManager.create(location, new MinionMoveComponent());
+        actors.add(actor);
+        return actor;
+    }
+}